@@ -10,9 +10,12 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.util.Config;
 import dev.chasem.hg.hubconverter.config.HytalesHubConfig;
 import dev.chasem.hg.hubconverter.convert.RegionCsvConverter;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
 import dev.chasem.hg.hubconverter.io.HytalesHubPaths;
 import dev.chasem.hg.hubconverter.mca.McaRegionExtractor;
 import dev.chasem.hg.hubconverter.mapping.BlockMapper;
+import dev.chasem.hg.hubconverter.pipeline.RegionScheduler;
+import dev.chasem.hg.hubconverter.pipeline.StreamingImporter;
 import dev.chasem.hg.hubconverter.spawn.RegionSpawner;
 
 import java.nio.file.Files;
@@ -45,10 +48,14 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
         long start = System.currentTimeMillis();
         announce(context, "Starting extract from " + mcRegionsDir);
-        McaRegionExtractor extractor = new McaRegionExtractor();
+        BlockStateDictionary dictionary = openDictionary(cfg);
+        McaRegionExtractor extractor = new McaRegionExtractor(dictionary);
         McaRegionExtractor.ExtractOptions options = new McaRegionExtractor.ExtractOptions(
-                cfg.isSkipAir(), cfg.getExtractYMin(), cfg.getExtractYMax());
+                cfg.isSkipAir(), cfg.getExtractYMin(), cfg.getExtractYMax(),
+                cfg.getExtractThreads(), cfg.getExtractChunkThreads(), cfg.isExtractSectorOrder(),
+                cfg.isExportCsv());
         McaRegionExtractor.ExtractSummary summary = extractor.extractAll(mcRegionsDir, mcRegionsDir, options);
+        dictionary.save();
 
         if (summary.totalFiles() == 0) {
             announce(context, "No .mca files found in " + mcRegionsDir);
@@ -76,7 +83,7 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
         long start = System.currentTimeMillis();
         announce(context, "Starting map step (mc-regions=" + mcRegionsDir + ")");
-        BlockMapper mapper = new BlockMapper();
+        BlockMapper mapper = new BlockMapper(openDictionary(cfg));
         BlockMapper.MapResult result = mapper.mapBlocks(
                 mcRegionsDir,
                 mappingFile,
@@ -107,15 +114,18 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
         long start = System.currentTimeMillis();
         announce(context, "Starting convert step (output=" + outputDir + ")");
-        RegionCsvConverter converter = new RegionCsvConverter();
+        BlockStateDictionary dictionary = openDictionary(cfg);
+        RegionCsvConverter converter = new RegionCsvConverter(dictionary);
         RegionCsvConverter.ConvertSummary summary = converter.convertAll(
-                mcRegionsDir, mappingFile, outputDir, cfg.getConvertYOffset(), cfg.getDefaultUnmappedBlock());
+                mcRegionsDir, mappingFile, outputDir, cfg.getConvertYOffset(), cfg.getDefaultUnmappedBlock(),
+                cfg.isExportCsv(), cfg.getConvertSortMemoryMb(), cfg.getConvertThreads());
+        dictionary.save();
 
         long elapsedMs = System.currentTimeMillis() - start;
         announce(context, String.format(
-                "Convert complete: files=%d rows=%d unmapped=%d errors=%d (%.2fs)",
-                summary.totalFiles(), summary.totalRows(), summary.totalUnmapped(), summary.errors(),
-                elapsedMs / 1000.0));
+                "Convert complete: files=%d rows=%d distinctBlocks=%d unmapped=%d errors=%d (%.2fs)",
+                summary.totalFiles(), summary.totalRows(), summary.resolvedKeys(), summary.totalUnmapped(),
+                summary.errors(), elapsedMs / 1000.0));
         announce(context, "Output folder: " + outputDir);
     }
 
@@ -132,7 +142,7 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
         long start = System.currentTimeMillis();
         announce(context, "Starting spawn step (input=" + outputDir + ")");
-        RegionSpawner spawner = new RegionSpawner();
+        RegionSpawner spawner = new RegionSpawner(openDictionary(cfg));
         RegionSpawner.SpawnSummary summary = spawner.spawnAll(world, outputDir, cfg.getSpawnThreads());
 
         long elapsedMs = System.currentTimeMillis() - start;
@@ -142,12 +152,82 @@ public class HytalesHubCommand extends AbstractCommandCollection {
     }
 
     private void runAll(CommandContext context) {
-        announce(context, "Running full pipeline: extract -> map -> convert -> spawn");
-        runExtract(context);
-        runMap(context);
-        runConvert(context);
-        runSpawn(context);
-        announce(context, "Pipeline complete.");
+        if (config.get().isRunStreaming()) {
+            runStreaming(context);
+            return;
+        }
+        World world = context.isPlayer() ? context.senderAs(Player.class).getWorld() : null;
+        if (world == null) {
+            announce(context, "Player world is not available; regions will be converted but not spawned.");
+        }
+
+        HytalesHubConfig cfg = config.get();
+        Path mcRegionsDir = HytalesHubPaths.getMcRegionsDir(cfg);
+        ensureDir(mcRegionsDir);
+        Path outputDir = HytalesHubPaths.getHytaleRegionsDir(cfg);
+        ensureDir(outputDir);
+
+        long start = System.currentTimeMillis();
+        announce(context, "Running full pipeline: extract -> map -> convert -> spawn, region by region");
+        BlockStateDictionary dictionary = openDictionary(cfg);
+        RegionScheduler.RunSummary summary = new RegionScheduler(dictionary).run(
+                world,
+                mcRegionsDir,
+                outputDir,
+                HytalesHubPaths.getBlockMappingFile(cfg),
+                HytalesHubPaths.getUnmappedBlocksFile(cfg),
+                HytalesHubPaths.getBlockOverridesFile(cfg),
+                HytalesHubPaths.getBlockIdsFile(cfg),
+                cfg
+        );
+        dictionary.save();
+
+        announce(context, String.format("Extract: files=%d chunks=%d blocks=%d errors=%d",
+                summary.extract().totalFiles(), summary.extract().totalChunks(), summary.extract().totalBlocks(),
+                summary.extract().totalErrors()));
+        announce(context, String.format("Map: mcBlocks=%d rows=%d unmatched=%d hytaleBlocks=%d",
+                summary.map().uniqueMcBlocks(), summary.map().mappingRows(), summary.map().unmatchedCount(),
+                summary.map().hytaleBlockCount()));
+        announce(context, String.format("Convert: files=%d rows=%d distinctBlocks=%d unmapped=%d errors=%d",
+                summary.convert().totalFiles(), summary.convert().totalRows(), summary.convert().resolvedKeys(),
+                summary.convert().totalUnmapped(), summary.convert().errors()));
+        announce(context, String.format("Spawn: files=%d placed=%d skipped=%d errors=%d",
+                summary.spawn().files(), summary.spawn().placed(), summary.spawn().skipped(),
+                summary.spawn().errors()));
+        announce(context, String.format("Pipeline complete (%.2fs).", (System.currentTimeMillis() - start) / 1000.0));
+    }
+
+    private void runStreaming(CommandContext context) {
+        World world = context.isPlayer() ? context.senderAs(Player.class).getWorld() : null;
+        if (world == null) {
+            announce(context, "Player world is not available. Run this command in-game.");
+            return;
+        }
+
+        HytalesHubConfig cfg = config.get();
+        Path mcRegionsDir = HytalesHubPaths.getMcRegionsDir(cfg);
+        ensureDir(mcRegionsDir);
+
+        long start = System.currentTimeMillis();
+        announce(context, "Running streaming import from " + mcRegionsDir + " (no intermediate files)");
+        BlockStateDictionary dictionary = openDictionary(cfg);
+        StreamingImporter importer = new StreamingImporter(dictionary);
+        StreamingImporter.ImportSummary summary = importer.importAll(
+                world,
+                mcRegionsDir,
+                HytalesHubPaths.getBlockMappingFile(cfg),
+                HytalesHubPaths.getUnmappedBlocksFile(cfg),
+                HytalesHubPaths.getBlockOverridesFile(cfg),
+                HytalesHubPaths.getBlockIdsFile(cfg),
+                cfg
+        );
+        dictionary.save();
+
+        long elapsedMs = System.currentTimeMillis() - start;
+        announce(context, String.format(
+                "Import complete: regions=%d chunks=%d blocks=%d unmapped=%d placed=%d skipped=%d errors=%d (%.2fs)",
+                summary.regions(), summary.chunks(), summary.blocks(), summary.unmapped(), summary.placed(),
+                summary.skipped(), summary.errors(), elapsedMs / 1000.0));
     }
 
     private void sendHelp(CommandContext context) {
@@ -157,9 +237,9 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
         StringBuilder sb = new StringBuilder();
         sb.append("=== /hytaleshub ===\n");
-        sb.append("/hytaleshub extract  - Read .mca files from mc-regions and write region CSVs\n");
+        sb.append("/hytaleshub extract  - Read .mca files from mc-regions and write region files\n");
         sb.append("/hytaleshub map      - Build block mappings + unmapped-blocks.csv\n");
-        sb.append("/hytaleshub convert  - Map region CSVs into hytale-region-csv\n");
+        sb.append("/hytaleshub convert  - Map region files into hytale-region-csv\n");
         sb.append("/hytaleshub spawn    - Place blocks from hytale-region-csv into the world\n");
         sb.append("/hytaleshub run      - Run all steps in order\n");
         sb.append("/hytaleshub --help   - Show this help\n");
@@ -170,6 +250,10 @@ public class HytalesHubCommand extends AbstractCommandCollection {
         context.sender().sendMessage(Message.raw(sb.toString()));
     }
 
+    private BlockStateDictionary openDictionary(HytalesHubConfig cfg) {
+        return BlockStateDictionary.open(HytalesHubPaths.getBlockStateDictionaryFile(cfg));
+    }
+
     private void ensureDir(Path dir) {
         if (dir == null || Files.exists(dir)) {
             return;
@@ -192,7 +276,7 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
     private final class ExtractCommand extends AbstractAsyncCommand {
         private ExtractCommand() {
-            super("extract", "Read .mca files and write region CSVs");
+            super("extract", "Read .mca files and write region files");
         }
 
         @Override
@@ -218,7 +302,7 @@ public class HytalesHubCommand extends AbstractCommandCollection {
 
     private final class ConvertCommand extends AbstractAsyncCommand {
         private ConvertCommand() {
-            super("convert", "Map region CSVs into hytale-region-csv");
+            super("convert", "Map region files into hytale-region-csv");
         }
 
         @Override
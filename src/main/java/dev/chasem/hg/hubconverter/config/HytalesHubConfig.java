@@ -26,6 +26,9 @@ public class HytalesHubConfig {
             .append(new KeyedCodec<>("BlockIdsFile", Codec.STRING),
                     (c, v) -> c.blockIdsFile = v, c -> c.blockIdsFile)
             .add()
+            .append(new KeyedCodec<>("BlockStateDictionaryFile", Codec.STRING),
+                    (c, v) -> c.blockStateDictionaryFile = v, c -> c.blockStateDictionaryFile)
+            .add()
             .append(new KeyedCodec<>("SkipAir", Codec.BOOLEAN),
                     (c, v) -> c.skipAir = v, c -> c.skipAir)
             .add()
@@ -35,18 +38,48 @@ public class HytalesHubConfig {
             .append(new KeyedCodec<>("ExtractYMax", Codec.INTEGER),
                     (c, v) -> c.extractYMax = v, c -> c.extractYMax)
             .add()
+            .append(new KeyedCodec<>("ExtractThreads", Codec.INTEGER),
+                    (c, v) -> c.extractThreads = v, c -> c.extractThreads)
+            .add()
+            .append(new KeyedCodec<>("ExtractChunkThreads", Codec.INTEGER),
+                    (c, v) -> c.extractChunkThreads = v, c -> c.extractChunkThreads)
+            .add()
+            .append(new KeyedCodec<>("ExtractSectorOrder", Codec.BOOLEAN),
+                    (c, v) -> c.extractSectorOrder = v, c -> c.extractSectorOrder)
+            .add()
+            .append(new KeyedCodec<>("ExportCsv", Codec.BOOLEAN),
+                    (c, v) -> c.exportCsv = v, c -> c.exportCsv)
+            .add()
             .append(new KeyedCodec<>("MapMinScore", Codec.FLOAT),
                     (c, v) -> c.mapMinScore = v, c -> c.mapMinScore)
             .add()
+            .append(new KeyedCodec<>("MapIncremental", Codec.BOOLEAN),
+                    (c, v) -> c.mapIncremental = v, c -> c.mapIncremental)
+            .add()
+            .append(new KeyedCodec<>("MapThreads", Codec.INTEGER),
+                    (c, v) -> c.mapThreads = v, c -> c.mapThreads)
+            .add()
             .append(new KeyedCodec<>("ConvertYOffset", Codec.INTEGER),
                     (c, v) -> c.convertYOffset = v, c -> c.convertYOffset)
             .add()
+            .append(new KeyedCodec<>("ConvertThreads", Codec.INTEGER),
+                    (c, v) -> c.convertThreads = v, c -> c.convertThreads)
+            .add()
+            .append(new KeyedCodec<>("ConvertSortMemoryMb", Codec.INTEGER),
+                    (c, v) -> c.convertSortMemoryMb = v, c -> c.convertSortMemoryMb)
+            .add()
             .append(new KeyedCodec<>("DefaultUnmappedBlock", Codec.STRING),
                     (c, v) -> c.defaultUnmappedBlock = v, c -> c.defaultUnmappedBlock)
             .add()
             .append(new KeyedCodec<>("SpawnThreads", Codec.INTEGER),
                     (c, v) -> c.spawnThreads = v, c -> c.spawnThreads)
             .add()
+            .append(new KeyedCodec<>("RunRegionsInFlight", Codec.INTEGER),
+                    (c, v) -> c.runRegionsInFlight = v, c -> c.runRegionsInFlight)
+            .add()
+            .append(new KeyedCodec<>("RunStreaming", Codec.BOOLEAN),
+                    (c, v) -> c.runStreaming = v, c -> c.runStreaming)
+            .add()
             .append(new KeyedCodec<>("UseLiveBlockRegistry", Codec.BOOLEAN),
                     (c, v) -> c.useLiveBlockRegistry = v, c -> c.useLiveBlockRegistry)
             .add()
@@ -58,13 +91,24 @@ public class HytalesHubConfig {
     private String unmappedBlocksFile = "unmapped-blocks.csv";
     private String blockOverridesFile = "block-overrides.csv";
     private String blockIdsFile = "block-ids.txt";
+    private String blockStateDictionaryFile = "block-states.txt";
     private boolean skipAir = true;
     private int extractYMin = 0;
     private int extractYMax = 319;
+    private int extractThreads = 0;
+    private int extractChunkThreads = 0;
+    private boolean extractSectorOrder = false;
+    private boolean exportCsv = false;
     private float mapMinScore = 0.45f;
+    private boolean mapIncremental = true;
+    private int mapThreads = 2;
     private int convertYOffset = 100;
+    private int convertThreads = 0;
+    private int convertSortMemoryMb = 64;
     private String defaultUnmappedBlock = "Soil_Clay_Smooth_Grey";
     private int spawnThreads = 100;
+    private int runRegionsInFlight = 2;
+    private boolean runStreaming = false;
     private boolean useLiveBlockRegistry = true;
 
     public String getMcRegionsFolder() {
@@ -91,6 +135,10 @@ public class HytalesHubConfig {
         return blockIdsFile;
     }
 
+    public String getBlockStateDictionaryFile() {
+        return blockStateDictionaryFile;
+    }
+
     public boolean isSkipAir() {
         return skipAir;
     }
@@ -103,14 +151,46 @@ public class HytalesHubConfig {
         return extractYMax;
     }
 
+    public int getExtractThreads() {
+        return extractThreads;
+    }
+
+    public int getExtractChunkThreads() {
+        return extractChunkThreads;
+    }
+
+    public boolean isExtractSectorOrder() {
+        return extractSectorOrder;
+    }
+
+    public boolean isExportCsv() {
+        return exportCsv;
+    }
+
     public float getMapMinScore() {
         return mapMinScore;
     }
 
+    public boolean isMapIncremental() {
+        return mapIncremental;
+    }
+
+    public int getMapThreads() {
+        return mapThreads;
+    }
+
     public int getConvertYOffset() {
         return convertYOffset;
     }
 
+    public int getConvertThreads() {
+        return convertThreads;
+    }
+
+    public int getConvertSortMemoryMb() {
+        return convertSortMemoryMb;
+    }
+
     public String getDefaultUnmappedBlock() {
         return defaultUnmappedBlock;
     }
@@ -119,6 +199,14 @@ public class HytalesHubConfig {
         return spawnThreads;
     }
 
+    public int getRunRegionsInFlight() {
+        return runRegionsInFlight;
+    }
+
+    public boolean isRunStreaming() {
+        return runStreaming;
+    }
+
     public boolean isUseLiveBlockRegistry() {
         return useLiveBlockRegistry;
     }
@@ -1,18 +1,37 @@
 package dev.chasem.hg.hubconverter.convert;
 
 import com.hypixel.hytale.logger.HytaleLogger;
+import dev.chasem.hg.hubconverter.io.BlockChunkEncoder;
+import dev.chasem.hg.hubconverter.io.BlockHistogram;
+import dev.chasem.hg.hubconverter.io.BlockRegionCsv;
+import dev.chasem.hg.hubconverter.io.BlockRegionFormat;
+import dev.chasem.hg.hubconverter.io.BlockRegionReader;
+import dev.chasem.hg.hubconverter.io.BlockRegionWriter;
+import dev.chasem.hg.hubconverter.io.BlockSection;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
+import dev.chasem.hg.hubconverter.io.ChunkSortedCsvWriter;
+import dev.chasem.hg.hubconverter.io.CsvChunkIndex;
+import dev.chasem.hg.hubconverter.io.CsvNameTable;
+import dev.chasem.hg.hubconverter.io.CsvRowEncoder;
+import dev.chasem.hg.hubconverter.io.CsvScanner;
+import dev.chasem.hg.hubconverter.mapping.BlockStateRules;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class RegionCsvConverter {
 
@@ -21,47 +40,43 @@ public class RegionCsvConverter {
     private static final String OUTPUT_BLOCK_COLUMN_NAME = "hytale_block";
     private static final String OUTPUT_PREFIX = "hytale-region-";
 
+    private final BlockStateDictionary dictionary;
+
+    public RegionCsvConverter(BlockStateDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
     public ConvertSummary convertAll(Path inputDir,
                                      Path mappingFile,
                                      Path outputDir,
                                      int yOffset,
-                                     String defaultUnmappedBlock) {
+                                     String defaultUnmappedBlock,
+                                     boolean exportCsv,
+                                     int sortMemoryMb,
+                                     int threads) {
         if (inputDir == null || !Files.exists(inputDir)) {
-            return new ConvertSummary(0, 0, 0, 1);
+            return new ConvertSummary(0, 0, 0, 1, 0);
         }
-        if (mappingFile == null || !Files.exists(mappingFile)) {
-            return new ConvertSummary(0, 0, 0, 1);
+        List<Path> inputFiles = BlockRegionFormat.listStageInputs(inputDir);
+        int workers = Math.max(1, Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                inputFiles.size()));
+        Session session = openSession(mappingFile, outputDir, yOffset, defaultUnmappedBlock, exportCsv, sortMemoryMb,
+                workers);
+        if (session == null) {
+            return new ConvertSummary(0, 0, 0, 1, 0);
         }
 
-        Map<String, String> mapping = loadMapping(mappingFile);
-        if (mapping.isEmpty()) {
-            return new ConvertSummary(0, 0, 0, 1);
-        }
-
-        List<Path> csvFiles = new ArrayList<>();
-        try (var stream = Files.list(inputDir)) {
-            stream.filter(path -> path.getFileName().toString().toLowerCase().endsWith(".csv"))
-                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
-                    .forEach(csvFiles::add);
-        } catch (IOException e) {
-            LOGGER.atWarning().log("[HytalesHub] Failed to list CSVs in %s: %s", inputDir, e.getMessage());
-            return new ConvertSummary(0, 0, 0, 1);
-        }
-
-        try {
-            Files.createDirectories(outputDir);
-        } catch (IOException e) {
-            LOGGER.atWarning().log("[HytalesHub] Failed to create output dir %s: %s", outputDir, e.getMessage());
-        }
+        FileConverter fileConverter = session::convertFile;
+        List<FileResult> results = workers <= 1
+                ? convertSequential(inputFiles, fileConverter)
+                : convertParallel(inputFiles, fileConverter, workers);
 
         int totalFiles = 0;
         long totalRows = 0;
         long totalUnmapped = 0;
         int errors = 0;
 
-        for (Path csvFile : csvFiles) {
-            Path outputPath = outputDir.resolve(OUTPUT_PREFIX + csvFile.getFileName().toString());
-            FileResult result = convertFile(csvFile, outputPath, mapping, yOffset, defaultUnmappedBlock);
+        for (FileResult result : results) {
             totalFiles++;
             totalRows += result.rows;
             totalUnmapped += result.unmapped;
@@ -70,11 +85,80 @@ public class RegionCsvConverter {
             }
         }
 
-        return new ConvertSummary(totalFiles, totalRows, totalUnmapped, errors);
+        LOGGER.atInfo().log("[HytalesHub] Convert resolved %d distinct block keys for %d rows",
+                session.resolvedKeys(), totalRows);
+        return new ConvertSummary(totalFiles, totalRows, totalUnmapped, errors, session.resolvedKeys());
+    }
+
+    /**
+     * Loads the mapping once for converting stage files one at a time, e.g. while a run is still extracting
+     * the rest. Returns null if the mapping file is missing or has no rows. {@code sortMemoryMb} is the total
+     * buffer for sorting CSV rows by chunk, split evenly between the {@code workers} files converted at once.
+     */
+    public Session openSession(Path mappingFile,
+                               Path outputDir,
+                               int yOffset,
+                               String defaultUnmappedBlock,
+                               boolean exportCsv,
+                               int sortMemoryMb,
+                               int workers) {
+        if (mappingFile == null || !Files.exists(mappingFile)) {
+            return null;
+        }
+        Map<String, String> mapping = loadMapping(mappingFile);
+        if (mapping.isEmpty()) {
+            return null;
+        }
+
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to create output dir %s: %s", outputDir, e.getMessage());
+        }
+        return new Session(BlockStateRules.of(mapping), outputDir, yOffset, defaultUnmappedBlock, exportCsv,
+                Math.max(1, sortMemoryMb) * (1L << 20) / Math.max(1, workers));
+    }
+
+    private List<FileResult> convertSequential(List<Path> inputFiles, FileConverter fileConverter) {
+        List<FileResult> results = new ArrayList<>(inputFiles.size());
+        for (Path inputFile : inputFiles) {
+            results.add(fileConverter.convert(inputFile));
+        }
+        return results;
+    }
+
+    private List<FileResult> convertParallel(List<Path> inputFiles, FileConverter fileConverter, int threads) {
+        LOGGER.atInfo().log("[HytalesHub] Converting %d files with %d threads", inputFiles.size(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<FileResult>> futures = new ArrayList<>(inputFiles.size());
+        for (Path inputFile : inputFiles) {
+            futures.add(executor.submit(() -> fileConverter.convert(inputFile)));
+        }
+        executor.shutdown();
+
+        // Every file has its own output, so collecting results in input order gives the same totals as a
+        // sequential run.
+        List<FileResult> results = new ArrayList<>(inputFiles.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                LOGGER.atWarning().log("[HytalesHub] Failed to convert %s: %s",
+                        inputFiles.get(i).getFileName(), cause.getMessage());
+                results.add(new FileResult(0, 0, true));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                results.add(new FileResult(0, 0, true));
+                break;
+            }
+        }
+        return results;
     }
 
     private Map<String, String> loadMapping(Path mappingFile) {
-        Map<String, String> mapping = new HashMap<>();
+        Map<String, String> mapping = new LinkedHashMap<>();
         try (BufferedReader reader = Files.newBufferedReader(mappingFile, StandardCharsets.UTF_8)) {
             String line = reader.readLine();
             if (line == null) {
@@ -84,7 +168,7 @@ public class RegionCsvConverter {
                 if (line.isBlank()) {
                     continue;
                 }
-                String[] parts = line.split(",", -1);
+                String[] parts = BlockStateRules.splitRow(line);
                 if (parts.length < 2) {
                     continue;
                 }
@@ -100,23 +184,31 @@ public class RegionCsvConverter {
         return mapping;
     }
 
+    /**
+     * Converts a CSV stage file. Older exports wrote block states unquoted, so the block column may have lost
+     * every property after the first; such a state only matches rules whose conditions it still carries.
+     *
+     * <p>The output is grouped and sorted by chunk, with a {@link CsvChunkIndex} next to it, so the spawner
+     * can place it chunk by chunk. Rows whose x or z does not parse are kept in chunk (0, 0).
+     */
     private FileResult convertFile(Path inputFile,
                                    Path outputFile,
-                                   Map<String, String> mapping,
+                                   CsvTargetCache cache,
                                    int yOffset,
-                                   String defaultUnmappedBlock) {
+                                   long sortMemoryBytes) {
         long rows = 0;
         long unmapped = 0;
 
-        try (BufferedReader reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8);
-             BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        try (CsvScanner reader = CsvScanner.open(inputFile);
+             ChunkSortedCsvWriter writer = ChunkSortedCsvWriter.create(outputFile, sortMemoryBytes)) {
+            if (!reader.nextRow()) {
                 return new FileResult(0, 0, true);
             }
-            String[] header = headerLine.split(",", -1);
+            String[] header = reader.fields();
             int blockIdx = findColumnIndex(header, "block");
+            int xIdx = findColumnIndex(header, "x");
             int yIdx = findColumnIndex(header, "y");
+            int zIdx = findColumnIndex(header, "z");
             String[] outHeader;
             if (blockIdx != -1) {
                 outHeader = header.clone();
@@ -127,47 +219,35 @@ public class RegionCsvConverter {
                 outHeader = new String[] {"x", "y", "z", OUTPUT_BLOCK_COLUMN_NAME};
                 if (header.length > blockIdx) {
                     String[] row = header;
-                    String mcBlock = stripBlockState(row[blockIdx]);
-                    String hytale = resolveMapping(mapping, mcBlock, defaultUnmappedBlock);
-                    if (isUnmapped(mapping, mcBlock)) {
+                    CsvTarget target = cache.resolve(row[blockIdx]);
+                    if (target.unmapped) {
                         unmapped++;
                     }
-                    row[blockIdx] = hytale;
-                    adjustYOffset(row, yIdx, yOffset);
-                    writer.write(String.join(",", outHeader));
-                    writer.newLine();
-                    writer.write(String.join(",", row));
-                    writer.newLine();
+                    row[blockIdx] = new String(target.block, StandardCharsets.UTF_8);
+                    writeRow(writer.header(), outHeader, -1, 0);
+                    writeRow(writer.row(chunkCoordinate(row[0]), chunkCoordinate(row[2])), row, yIdx, yOffset);
                     rows++;
                     return new FileResult(rows, unmapped, false);
                 }
             }
 
-            if (yIdx == -1) {
-                yIdx = 1;
-            }
+            xIdx = xIdx == -1 ? 0 : xIdx;
+            yIdx = yIdx == -1 ? 1 : yIdx;
+            zIdx = zIdx == -1 ? 2 : zIdx;
 
-            writer.write(String.join(",", outHeader));
-            writer.newLine();
+            writeRow(writer.header(), outHeader, -1, 0);
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isBlank()) {
+            CsvTargets targets = new CsvTargets(cache);
+            while (reader.nextRow()) {
+                if (reader.isBlank() || reader.fieldCount() <= blockIdx) {
                     continue;
                 }
-                String[] row = line.split(",", -1);
-                if (row.length <= blockIdx) {
-                    continue;
-                }
-                String mcBlock = stripBlockState(row[blockIdx]);
-                String hytale = resolveMapping(mapping, mcBlock, defaultUnmappedBlock);
-                if (isUnmapped(mapping, mcBlock)) {
+                int nameId = reader.intern(blockIdx, targets.names);
+                if (targets.isUnmapped(nameId)) {
                     unmapped++;
                 }
-                row[blockIdx] = hytale;
-                adjustYOffset(row, yIdx, yOffset);
-                writer.write(String.join(",", row));
-                writer.newLine();
+                CsvRowEncoder row = writer.row(chunkCoordinate(reader, xIdx), chunkCoordinate(reader, zIdx));
+                writeScannedRow(row, reader, blockIdx, targets.target(nameId), yIdx, yOffset);
                 rows++;
             }
         } catch (IOException e) {
@@ -178,27 +258,137 @@ public class RegionCsvConverter {
         return new FileResult(rows, unmapped, false);
     }
 
-    private void adjustYOffset(String[] row, int yIdx, int yOffset) {
-        if (row.length <= yIdx) {
-            return;
+    /**
+     * The chunk of a block coordinate field, or 0 if the field is missing or not an int.
+     */
+    private static int chunkCoordinate(CsvScanner reader, int field) {
+        if (field >= reader.fieldCount()) {
+            return 0;
         }
         try {
-            int y = Integer.parseInt(row[yIdx].trim());
-            row[yIdx] = Integer.toString(y + yOffset);
-        } catch (NumberFormatException ignored) {
+            return reader.parseInt(field) >> 4;
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 
-    private String stripBlockState(String blockName) {
-        if (blockName == null) {
-            return "";
+    private static int chunkCoordinate(String value) {
+        try {
+            return Integer.parseInt(value.trim()) >> 4;
+        } catch (NumberFormatException e) {
+            return 0;
         }
-        String trimmed = blockName.trim();
-        int idx = trimmed.indexOf('[');
-        if (idx != -1) {
-            return trimmed.substring(0, idx);
+    }
+
+    /**
+     * Converts a binary region file by rewriting each section's palette; the packed block indices are
+     * copied unchanged, so the cost is per palette entry rather than per block.
+     */
+    private FileResult convertRegionFile(Path inputFile,
+                                         Path outputFile,
+                                         TargetTable targets,
+                                         int yOffset,
+                                         boolean exportCsv) {
+        Path csvFile = outputFile.resolveSibling(outputFile.getFileName().toString()
+                .replace(BlockRegionFormat.EXTENSION, ".csv"));
+        RegionTotals totals = new RegionTotals();
+
+        try (BlockRegionReader reader = BlockRegionReader.open(inputFile, dictionary);
+             BlockRegionWriter writer = BlockRegionWriter.create(outputFile, reader.yOffset() + yOffset);
+             BlockRegionCsv csv = exportCsv
+                     ? BlockRegionCsv.create(csvFile, OUTPUT_BLOCK_COLUMN_NAME, dictionary)
+                     : null) {
+            int outputYOffset = reader.yOffset() + yOffset;
+            BlockChunkEncoder encoder = new BlockChunkEncoder();
+            BlockSection section = new BlockSection();
+            int[] scratch = new int[BlockRegionFormat.SECTION_BLOCKS];
+            int[] palette = new int[BlockRegionFormat.SECTION_BLOCKS];
+
+            for (int position = 0; position < reader.chunkCount(); position++) {
+                int chunkX = reader.chunkX(position);
+                int chunkZ = reader.chunkZ(position);
+                encoder.begin(chunkX, chunkZ);
+                reader.readChunk(position, section, source -> {
+                    int paletteSize = source.paletteSize();
+                    long[] counts = totals.counts(paletteSize);
+                    source.countBlocks(counts, scratch);
+                    long sectionBlocks = 0;
+                    for (int entry = 1; entry <= paletteSize; entry++) {
+                        int stateId = source.stateId(entry);
+                        palette[entry - 1] = targets.target(stateId);
+                        sectionBlocks += counts[entry];
+                        if (targets.isUnmapped(stateId)) {
+                            totals.unmapped += counts[entry];
+                        }
+                    }
+                    totals.rows += sectionBlocks;
+                    encoder.addPackedSection(source, palette, sectionBlocks);
+                });
+                byte[] chunk = encoder.finish();
+                writer.writeChunk(chunkX, chunkZ, chunk);
+                if (csv != null) {
+                    csv.writeChunk(ByteBuffer.wrap(chunk), outputYOffset);
+                }
+            }
+            // The writer completes the file on close; the target ids it holds must be on disk before that.
+            dictionary.save();
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to convert %s: %s", inputFile.getFileName(), e.getMessage());
+            return new FileResult(totals.rows, totals.unmapped, true);
+        }
+
+        return new FileResult(totals.rows, totals.unmapped, false);
+    }
+
+    /**
+     * Writes {@code row} comma-joined, with column {@code yIdx} shifted by {@code yOffset} when it parses as
+     * an integer (pass {@code yIdx = -1} to write the row unchanged).
+     */
+    private void writeRow(CsvRowEncoder writer, String[] row, int yIdx, int yOffset) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.writeByte(',');
+            }
+            if (i == yIdx) {
+                try {
+                    writer.writeInt(Integer.parseInt(row[i].trim()) + yOffset);
+                    continue;
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            writer.writeString(row[i]);
         }
-        return trimmed;
+        writer.newLine();
+    }
+
+    /**
+     * Copies the current row of {@code reader}, replacing column {@code blockIdx} with {@code block} and
+     * shifting column {@code yIdx} by {@code yOffset} when it parses as an integer.
+     */
+    private void writeScannedRow(CsvRowEncoder writer,
+                                 CsvScanner reader,
+                                 int blockIdx,
+                                 byte[] block,
+                                 int yIdx,
+                                 int yOffset) throws IOException {
+        for (int i = 0; i < reader.fieldCount(); i++) {
+            if (i > 0) {
+                writer.writeByte(',');
+            }
+            if (i == blockIdx) {
+                writer.writeBytes(block);
+                continue;
+            }
+            if (i == yIdx) {
+                try {
+                    writer.writeInt(reader.parseInt(i) + yOffset);
+                    continue;
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            writer.writeBytes(reader.buffer(), reader.fieldStart(i), reader.fieldEnd(i));
+        }
+        writer.newLine();
     }
 
     private int findColumnIndex(String[] header, String name) {
@@ -210,9 +400,11 @@ public class RegionCsvConverter {
         return -1;
     }
 
-    private String resolveMapping(Map<String, String> mapping, String mcBlock, String defaultUnmappedBlock) {
-        String mapped = mapping.get(mcBlock);
-        if (mapped == null || mapped.isBlank()) {
+    /**
+     * The output block for a {@link BlockStateRules#resolve} result, with null standing for unmapped.
+     */
+    private String resolveMapping(String mapped, String defaultUnmappedBlock) {
+        if (mapped == null) {
             if (defaultUnmappedBlock != null && !defaultUnmappedBlock.isBlank()) {
                 return defaultUnmappedBlock;
             }
@@ -221,14 +413,230 @@ public class RegionCsvConverter {
         return mapped;
     }
 
-    private boolean isUnmapped(Map<String, String> mapping, String mcBlock) {
-        String mapped = mapping.get(mcBlock);
-        return mapped == null || mapped.isBlank();
+    private record FileResult(long rows, long unmapped, boolean error) {
     }
 
-    private record FileResult(long rows, long unmapped, boolean error) {
+    /**
+     * The mapping rules, the targets resolved through them so far, and output settings; see
+     * {@link #openSession}. Files may be converted from several threads at once.
+     */
+    public final class Session {
+        private final BlockStateRules rules;
+        private final TargetTable targets;
+        private final CsvTargetCache csvTargets;
+        private final Path outputDir;
+        private final int yOffset;
+        private final boolean exportCsv;
+        private final long sortMemoryBytes;
+
+        private Session(BlockStateRules rules,
+                        Path outputDir,
+                        int yOffset,
+                        String defaultUnmappedBlock,
+                        boolean exportCsv,
+                        long sortMemoryBytes) {
+            this.rules = rules;
+            this.targets = new TargetTable(rules, defaultUnmappedBlock);
+            this.csvTargets = new CsvTargetCache(rules, defaultUnmappedBlock);
+            this.outputDir = outputDir;
+            this.yOffset = yOffset;
+            this.exportCsv = exportCsv;
+            this.sortMemoryBytes = sortMemoryBytes;
+        }
+
+        /**
+         * Converts one stage file into the session's output folder. The summary's {@code resolvedKeys} is the
+         * session's running total.
+         */
+        public ConvertSummary convert(Path inputFile) {
+            FileResult result = convertFile(inputFile);
+            return new ConvertSummary(1, result.rows, result.unmapped, result.error ? 1 : 0, resolvedKeys());
+        }
+
+        /**
+         * Distinct block keys (state ids referenced by converted sections, raw block values of CSVs) resolved
+         * through the mapping so far. Every row after the first with the same key is an array read.
+         */
+        public long resolvedKeys() {
+            return targets.resolved() + csvTargets.size();
+        }
+
+        /**
+         * Whether the mapping has a row for every block in the histogram saved next to {@code regionFile}, so
+         * converting it now gives the same result as after a new map step. False if there is no histogram.
+         */
+        public boolean covers(Path regionFile) {
+            Path histogramFile = BlockRegionFormat.histogramPathFor(regionFile);
+            if (!Files.exists(histogramFile)) {
+                return false;
+            }
+            try {
+                for (String blockState : BlockHistogram.read(histogramFile).keySet()) {
+                    if (!rules.covers(blockState)) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                LOGGER.atWarning().log("[HytalesHub] Failed to read %s: %s", histogramFile.getFileName(),
+                        e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * The converted file {@link #convert} writes for {@code inputFile}.
+         */
+        public Path outputPathFor(Path inputFile) {
+            return outputDir.resolve(OUTPUT_PREFIX + inputFile.getFileName().toString());
+        }
+
+        private FileResult convertFile(Path inputFile) {
+            Path outputPath = outputPathFor(inputFile);
+            return BlockRegionFormat.isRegionFile(inputFile)
+                    ? convertRegionFile(inputFile, outputPath, targets, yOffset, exportCsv)
+                    : RegionCsvConverter.this.convertFile(inputFile, outputPath, csvTargets, yOffset, sortMemoryBytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileConverter {
+        FileResult convert(Path inputFile);
+    }
+
+    /**
+     * Hytale target ids by Minecraft state id. A state is resolved through the rules the first time a converted
+     * section references it; after that, converting a palette entry is one array read. Entries of unmapped
+     * states are stored negated.
+     *
+     * <p>Lookups may run on several threads at once: a reader that misses (or sees a table still being
+     * published) falls through to the synchronized slow path, which is the only place the table changes.
+     */
+    private final class TargetTable {
+        private final BlockStateRules rules;
+        private final String defaultUnmappedBlock;
+        private int[] targets;
+        private int resolved;
+
+        private TargetTable(BlockStateRules rules, String defaultUnmappedBlock) {
+            this.rules = rules;
+            this.defaultUnmappedBlock = defaultUnmappedBlock;
+            this.targets = new int[Math.max(256, dictionary.size() + 1)];
+        }
+
+        private int target(int stateId) {
+            return Math.abs(entry(stateId));
+        }
+
+        private boolean isUnmapped(int stateId) {
+            return entry(stateId) < 0;
+        }
+
+        private int entry(int stateId) {
+            int[] table = targets;
+            int entry = stateId < table.length ? table[stateId] : 0;
+            return entry != 0 ? entry : resolve(stateId);
+        }
+
+        private synchronized int resolve(int stateId) {
+            if (stateId >= targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(stateId + 1, targets.length * 2));
+            }
+            int entry = targets[stateId];
+            if (entry == 0) {
+                String mapped = rules.resolve(dictionary.name(stateId));
+                int target = dictionary.idOf(resolveMapping(mapped, defaultUnmappedBlock));
+                entry = mapped == null ? -target : target;
+                targets[stateId] = entry;
+                resolved++;
+            }
+            return entry;
+        }
+
+        private synchronized int resolved() {
+            return resolved;
+        }
+    }
+
+    /**
+     * Converted block bytes per raw block column value, shared by every CSV file of a session so that each
+     * distinct value is resolved through the rules once per run.
+     */
+    private final class CsvTargetCache {
+        private final BlockStateRules rules;
+        private final String defaultUnmappedBlock;
+        private final Map<String, CsvTarget> targets = new ConcurrentHashMap<>();
+
+        private CsvTargetCache(BlockStateRules rules, String defaultUnmappedBlock) {
+            this.rules = rules;
+            this.defaultUnmappedBlock = defaultUnmappedBlock;
+        }
+
+        private CsvTarget resolve(String rawBlock) {
+            return targets.computeIfAbsent(rawBlock, key -> {
+                String mapped = rules.resolve(key);
+                byte[] block = resolveMapping(mapped, defaultUnmappedBlock).getBytes(StandardCharsets.UTF_8);
+                return new CsvTarget(block, mapped == null);
+            });
+        }
+
+        private int size() {
+            return targets.size();
+        }
+    }
+
+    private record CsvTarget(byte[] block, boolean unmapped) {
+    }
+
+    /**
+     * The targets of one CSV file by interned block column value, filled from the session's
+     * {@link CsvTargetCache} the first time each value is seen in the file.
+     */
+    private static final class CsvTargets {
+        private final CsvNameTable names = new CsvNameTable();
+        private final CsvTargetCache cache;
+        private CsvTarget[] targets = new CsvTarget[256];
+
+        private CsvTargets(CsvTargetCache cache) {
+            this.cache = cache;
+        }
+
+        private byte[] target(int nameId) {
+            return entry(nameId).block;
+        }
+
+        private boolean isUnmapped(int nameId) {
+            return entry(nameId).unmapped;
+        }
+
+        private CsvTarget entry(int nameId) {
+            if (nameId >= targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(nameId + 1, targets.length * 2));
+            }
+            CsvTarget target = targets[nameId];
+            if (target == null) {
+                target = cache.resolve(names.name(nameId));
+                targets[nameId] = target;
+            }
+            return target;
+        }
+    }
+
+    private static final class RegionTotals {
+        private long rows;
+        private long unmapped;
+        private final long[] counts = new long[BlockRegionFormat.SECTION_BLOCKS + 1];
+
+        private long[] counts(int paletteSize) {
+            Arrays.fill(counts, 0, paletteSize + 1, 0L);
+            return counts;
+        }
     }
 
-    public record ConvertSummary(int totalFiles, long totalRows, long totalUnmapped, int errors) {
+    /**
+     * {@code resolvedKeys} counts the distinct block keys resolved through the mapping, against
+     * {@code totalRows} blocks converted.
+     */
+    public record ConvertSummary(int totalFiles, long totalRows, long totalUnmapped, int errors, long resolvedKeys) {
     }
 }
@@ -0,0 +1,210 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Builds the bytes of one {@link BlockRegionFormat} chunk. An encoder is reused for many chunks by a single
+ * thread: call {@link #begin}, add sections, then {@link #finish}.
+ *
+ * <p>Sections are compacted on the way in: palette entries that no block uses are dropped, the remaining
+ * entries are numbered in order of first use, sections with no blocks are left out and sections made of
+ * a single block type are stored without indices.
+ *
+ * <p>While compacting, the encoder also counts the blocks per state id of the sections added through
+ * {@link #addSection} and {@link #addUniformSection}; see {@link #histogram()}.
+ */
+public final class BlockChunkEncoder {
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private int[] remap = new int[BlockRegionFormat.SECTION_BLOCKS + 1];
+    private int[] order = new int[BlockRegionFormat.SECTION_BLOCKS + 1];
+    private int[] entryCounts = new int[BlockRegionFormat.SECTION_BLOCKS + 1];
+    private long[] histogram = new long[64];
+    private int histogramSize;
+    private int sectionCount;
+    private long blocks;
+
+    public void begin(int chunkX, int chunkZ) {
+        buffer.clear();
+        buffer.putInt(chunkX);
+        buffer.putInt(chunkZ);
+        buffer.putShort((short) 0);
+        sectionCount = 0;
+        blocks = 0;
+        histogramSize = 0;
+    }
+
+    /**
+     * Adds a section whose {@code indices[0..4095]} (y/z/x order) select the state id
+     * {@code palette[index - 1]}, with 0 meaning "no block". Only local y {@code lyMin..lyMax} is kept.
+     */
+    public void addSection(int sectionY, int lyMin, int lyMax, int[] palette, int paletteSize, int[] indices)
+            throws IOException {
+        if (lyMin > lyMax) {
+            return;
+        }
+        if (remap.length <= paletteSize) {
+            remap = new int[paletteSize + 1];
+            order = new int[paletteSize + 1];
+            entryCounts = new int[paletteSize + 1];
+        }
+        Arrays.fill(remap, 0, paletteSize + 1, 0);
+
+        int start = lyMin << 8;
+        int end = (lyMax + 1) << 8;
+        int used = 0;
+        int present = 0;
+        for (int i = start; i < end; i++) {
+            int index = indices[i];
+            if (index <= 0 || index > paletteSize) {
+                continue;
+            }
+            present++;
+            if (remap[index] == 0) {
+                remap[index] = ++used;
+                order[used] = index;
+                entryCounts[used] = 0;
+            }
+            entryCounts[remap[index]]++;
+        }
+        if (present == 0) {
+            return;
+        }
+        if (used == 1 && present == end - start) {
+            addUniformSection(sectionY, lyMin, lyMax, palette[order[1] - 1]);
+            return;
+        }
+
+        int bits = BlockRegionFormat.bitsForPaletteSize(used);
+        beginSection(sectionY, lyMin, lyMax, used, BlockRegionFormat.packedBytes(bits));
+        for (int entry = 1; entry <= used; entry++) {
+            int stateId = palette[order[entry] - 1];
+            buffer.putInt(stateId);
+            count(stateId, entryCounts[entry]);
+        }
+        buffer.put((byte) bits);
+        for (int i = 0; i < BlockRegionFormat.SECTION_BLOCKS; ) {
+            switch (bits) {
+                case 4 -> {
+                    int low = compacted(indices, i, start, end, paletteSize);
+                    int high = compacted(indices, i + 1, start, end, paletteSize);
+                    buffer.put((byte) (low | (high << 4)));
+                    i += 2;
+                }
+                case 8 -> {
+                    buffer.put((byte) compacted(indices, i, start, end, paletteSize));
+                    i++;
+                }
+                default -> {
+                    buffer.putShort((short) compacted(indices, i, start, end, paletteSize));
+                    i++;
+                }
+            }
+        }
+        blocks += present;
+    }
+
+    /**
+     * Adds a section in which every block from local y {@code lyMin..lyMax} is {@code stateId}.
+     */
+    public void addUniformSection(int sectionY, int lyMin, int lyMax, int stateId) throws IOException {
+        if (lyMin > lyMax) {
+            return;
+        }
+        beginSection(sectionY, lyMin, lyMax, 1, 0);
+        buffer.putInt(stateId);
+        buffer.put((byte) 0);
+        blocks += (lyMax - lyMin + 1) * 256L;
+        count(stateId, (lyMax - lyMin + 1) * 256);
+    }
+
+    /**
+     * Copies a section read from another region file, replacing entry {@code i} of its palette with the
+     * state id {@code palette[i - 1]}. The packed indices are copied as they are.
+     */
+    public void addPackedSection(BlockSection source, int[] palette, long sectionBlocks) throws IOException {
+        int paletteSize = source.paletteSize();
+        ByteBuffer packed = source.packedIndices();
+        beginSection(source.sectionY(), source.lyMin(), source.lyMax(), paletteSize, packed.remaining());
+        for (int i = 0; i < paletteSize; i++) {
+            buffer.putInt(palette[i]);
+        }
+        buffer.put((byte) source.bits());
+        buffer.put(packed);
+        blocks += sectionBlocks;
+    }
+
+    public int sectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Blocks stored in the chunk started by the last {@link #begin}.
+     */
+    public long blocks() {
+        return blocks;
+    }
+
+    /**
+     * Block counts of the chunk started by the last {@link #begin}, one entry per section and state id,
+     * packed as {@code (long) stateId << 32 | count}. Sections copied with {@link #addPackedSection} are
+     * not included.
+     */
+    public long[] histogram() {
+        return Arrays.copyOf(histogram, histogramSize);
+    }
+
+    public byte[] finish() {
+        buffer.putShort(8, (short) sectionCount);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private void count(int stateId, int count) {
+        if (histogramSize == histogram.length) {
+            histogram = Arrays.copyOf(histogram, histogramSize * 2);
+        }
+        histogram[histogramSize++] = (long) stateId << 32 | count;
+    }
+
+    private int compacted(int[] indices, int i, int start, int end, int paletteSize) {
+        if (i < start || i >= end) {
+            return 0;
+        }
+        int index = indices[i];
+        return index <= 0 || index > paletteSize ? 0 : remap[index];
+    }
+
+    /**
+     * Writes the section header after making room for the palette, the index width and
+     * {@code indexBytes} of packed indices.
+     */
+    private void beginSection(int sectionY, int lyMin, int lyMax, int paletteSize, int indexBytes)
+            throws IOException {
+        if (sectionCount == 0xFFFF) {
+            throw new IOException("Too many sections in chunk");
+        }
+        if (paletteSize > BlockRegionFormat.SECTION_BLOCKS) {
+            throw new IOException("Section palette too large: " + paletteSize);
+        }
+        ensureCapacity(8 + paletteSize * Integer.BYTES + 1 + indexBytes);
+        buffer.putInt(sectionY);
+        buffer.put((byte) lyMin);
+        buffer.put((byte) lyMax);
+        buffer.putShort((short) paletteSize);
+        sectionCount++;
+    }
+
+    private void ensureCapacity(int extra) {
+        int needed = buffer.position() + extra;
+        if (needed > buffer.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
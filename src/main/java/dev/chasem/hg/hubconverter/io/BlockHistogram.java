@@ -0,0 +1,96 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Block counts by {@link BlockStateDictionary} id, written next to the extracted region files so the map
+ * step can read a few hundred lines instead of every block.
+ *
+ * <p>Files are text: a {@code count,block} header and one {@code count,name} line per block state. The
+ * count comes first because state names can contain commas. {@link #add} is meant for a single owning
+ * thread; {@link #merge} and {@link #write} may be called from several.
+ */
+public final class BlockHistogram {
+
+    private long[] counts = new long[256];
+
+    /**
+     * Adds the entries returned by {@link BlockChunkEncoder#histogram()}.
+     */
+    public void addEntries(long[] entries) {
+        for (long entry : entries) {
+            add((int) (entry >>> 32), entry & 0xFFFFFFFFL);
+        }
+    }
+
+    public void add(int stateId, long count) {
+        if (stateId >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(stateId + 1, counts.length * 2));
+        }
+        counts[stateId] += count;
+    }
+
+    public synchronized void merge(BlockHistogram other) {
+        for (int stateId = 1; stateId < other.counts.length; stateId++) {
+            if (other.counts[stateId] != 0) {
+                add(stateId, other.counts[stateId]);
+            }
+        }
+    }
+
+    /**
+     * The counts as block state name to count, in state id order.
+     */
+    public synchronized Map<String, Long> byName(BlockStateDictionary dictionary) {
+        Map<String, Long> byName = new LinkedHashMap<>();
+        for (int stateId = 1; stateId < counts.length; stateId++) {
+            if (counts[stateId] != 0) {
+                byName.merge(dictionary.name(stateId), counts[stateId], Long::sum);
+            }
+        }
+        return byName;
+    }
+
+    public synchronized void write(Path file, BlockStateDictionary dictionary) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("count,block");
+            writer.newLine();
+            for (int stateId = 1; stateId < counts.length; stateId++) {
+                if (counts[stateId] != 0) {
+                    writer.write(counts[stateId] + "," + dictionary.name(stateId));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a histogram file as block state name to count, in file order.
+     */
+    public static Map<String, Long> read(Path file) throws IOException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma <= 0) {
+                    continue;
+                }
+                try {
+                    counts.merge(line.substring(comma + 1), Long.parseLong(line.substring(0, comma)), Long::sum);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad histogram line: " + line, e);
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,104 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes sections as {@code x,y,z,block} CSV rows, the optional human-readable export of each stage.
+ * Block names are encoded to UTF-8 once per state id and rows go through a {@link CsvRowEncoder}, so the
+ * export allocates nothing per block. Not thread-safe; use one instance per output file.
+ */
+public final class BlockRegionCsv implements AutoCloseable {
+
+    private final CsvRowEncoder rows;
+    private final BlockStateDictionary dictionary;
+    private final BlockSection section = new BlockSection();
+    private final int[] scratch = new int[BlockRegionFormat.SECTION_BLOCKS];
+    private byte[][] nameBytes = new byte[256][];
+
+    private BlockRegionCsv(CsvRowEncoder rows, BlockStateDictionary dictionary) {
+        this.rows = rows;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Creates {@code path} and writes the {@code x,y,z,<blockColumn>} header.
+     */
+    public static BlockRegionCsv create(Path path, String blockColumn, BlockStateDictionary dictionary)
+            throws IOException {
+        CsvRowEncoder rows = CsvRowEncoder.create(path);
+        try {
+            rows.writeString("x,y,z,");
+            rows.writeString(blockColumn);
+            rows.newLine();
+        } catch (IOException e) {
+            rows.close();
+            throw e;
+        }
+        return new BlockRegionCsv(rows, dictionary);
+    }
+
+    /**
+     * Writes every section of one encoded chunk (as produced by {@link BlockChunkEncoder#finish()}).
+     */
+    public void writeChunk(ByteBuffer chunk, int yOffset) throws IOException {
+        BlockRegionReader.readChunk(chunk, yOffset, dictionary.size(), section, this::writeSection);
+    }
+
+    /**
+     * Writes one row per block of {@code section} in y/z/x order and returns the number of rows.
+     */
+    public long writeSection(BlockSection section) throws IOException {
+        if (section.lyMin() > section.lyMax()) {
+            return 0;
+        }
+        int baseX = section.baseX();
+        int baseY = section.baseY();
+        int baseZ = section.baseZ();
+        if (section.isUniform()) {
+            byte[] block = nameBytes(section.stateId(1));
+            for (int ly = section.lyMin(); ly <= section.lyMax(); ly++) {
+                for (int lz = 0; lz < 16; lz++) {
+                    for (int lx = 0; lx < 16; lx++) {
+                        rows.writeRow(baseX + lx, baseY + ly, baseZ + lz, block);
+                    }
+                }
+            }
+            return (section.lyMax() - section.lyMin() + 1) * 256L;
+        }
+
+        section.unpack(scratch);
+        int paletteSize = section.paletteSize();
+        long written = 0;
+        for (int index = section.lyMin() << 8, end = (section.lyMax() + 1) << 8; index < end; index++) {
+            int entry = scratch[index];
+            if (entry == 0 || entry > paletteSize) {
+                continue;
+            }
+            rows.writeRow(baseX + (index & 15), baseY + (index >> 8), baseZ + ((index >> 4) & 15),
+                    nameBytes(section.stateId(entry)));
+            written++;
+        }
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows.close();
+    }
+
+    private byte[] nameBytes(int stateId) {
+        if (stateId >= nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(stateId + 1, nameBytes.length * 2));
+        }
+        byte[] bytes = nameBytes[stateId];
+        if (bytes == null) {
+            bytes = dictionary.name(stateId).getBytes(StandardCharsets.UTF_8);
+            nameBytes[stateId] = bytes;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,98 @@
+package dev.chasem.hg.hubconverter.io;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Layout of the binary region files ({@code .hhr}) passed between extract, map, convert and spawn.
+ *
+ * <pre>
+ * header   magic "HHRB" | int version | int yOffset | int chunkCount | long indexOffset
+ * chunk    int chunkX | int chunkZ | ushort sectionCount | section...
+ * section  int sectionY | byte lyMin | byte lyMax | ushort paletteSize | int stateId... | byte bits | indices
+ * index    chunkCount x (int chunkX | int chunkZ | long offset | int length)
+ * </pre>
+ *
+ * <p>All numbers are big-endian. Palette entries are {@link BlockStateDictionary} ids. Section indices are
+ * 4096 values in y/z/x order packed at {@code bits} per value (4, 8 or 16; 4-bit values fill the low nibble
+ * first). Index 0 means "no block" and {@code 1..paletteSize} select a palette entry. A section with
+ * {@code bits == 0} is uniformly palette entry 1. Blocks whose local y falls outside {@code lyMin..lyMax}
+ * are absent. Readers add {@code yOffset} to every world y.
+ */
+public final class BlockRegionFormat {
+
+    public static final String EXTENSION = ".hhr";
+    public static final int MAGIC = 0x48485242; // "HHRB"
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 24;
+    public static final int INDEX_ENTRY_BYTES = 20;
+    public static final int SECTION_BLOCKS = 4096;
+    /** Per-region {@link BlockHistogram} written next to each region file. */
+    public static final String HISTOGRAM_EXTENSION = ".hist";
+    /** {@link BlockHistogram} of every region written by one extract run. */
+    public static final String MERGED_HISTOGRAM = "blocks" + HISTOGRAM_EXTENSION;
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private BlockRegionFormat() {
+    }
+
+    public static boolean isRegionFile(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(EXTENSION);
+    }
+
+    /**
+     * The histogram file that belongs to {@code regionFile}, e.g. {@code r.0.0.hist} for {@code r.0.0.hhr}.
+     */
+    public static Path histogramPathFor(Path regionFile) {
+        String name = regionFile.getFileName().toString();
+        if (isRegionFile(regionFile)) {
+            name = name.substring(0, name.length() - EXTENSION.length());
+        }
+        return regionFile.resolveSibling(name + HISTOGRAM_EXTENSION);
+    }
+
+    public static int bitsForPaletteSize(int paletteSize) {
+        if (paletteSize < 16) {
+            return 4;
+        }
+        return paletteSize < 256 ? 8 : 16;
+    }
+
+    public static int packedBytes(int bits) {
+        return SECTION_BLOCKS * bits / 8;
+    }
+
+    /**
+     * Lists the stage inputs in {@code dir}, sorted by file name: the binary region files when any exist,
+     * otherwise the CSV files. CSV exports written next to binary files are therefore never read twice.
+     */
+    public static List<Path> listStageInputs(Path dir) {
+        List<Path> binary = new ArrayList<>();
+        List<Path> csv = new ArrayList<>();
+        if (dir == null || !Files.exists(dir)) {
+            return csv;
+        }
+        try (var stream = Files.list(dir)) {
+            stream.sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .forEach(path -> {
+                        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+                        if (name.endsWith(EXTENSION)) {
+                            binary.add(path);
+                        } else if (name.endsWith(".csv")) {
+                            csv.add(path);
+                        }
+                    });
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to list region files in %s: %s", dir, e.getMessage());
+        }
+        return binary.isEmpty() ? csv : binary;
+    }
+}
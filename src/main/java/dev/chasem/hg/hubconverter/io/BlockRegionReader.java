@@ -0,0 +1,166 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped reader for {@link BlockRegionFormat} files. Chunks can be visited in file order or one at a
+ * time by index position, which lets callers hand whole chunks to different threads.
+ */
+public final class BlockRegionReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer mapped;
+    private final int yOffset;
+    private final int chunkCount;
+    private final int indexOffset;
+    private final int maxStateId;
+
+    private BlockRegionReader(FileChannel channel, ByteBuffer mapped, int maxStateId) throws IOException {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.maxStateId = maxStateId;
+        if (mapped.limit() < BlockRegionFormat.HEADER_BYTES || mapped.getInt(0) != BlockRegionFormat.MAGIC) {
+            throw new IOException("Not a HytalesHub region file");
+        }
+        int version = mapped.getInt(4);
+        if (version != BlockRegionFormat.VERSION) {
+            throw new IOException("Unsupported region file version " + version);
+        }
+        this.yOffset = mapped.getInt(8);
+        this.chunkCount = mapped.getInt(12);
+        long index = mapped.getLong(16);
+        if (chunkCount < 0 || index < BlockRegionFormat.HEADER_BYTES
+                || index + (long) chunkCount * BlockRegionFormat.INDEX_ENTRY_BYTES > mapped.limit()) {
+            throw new IOException("Corrupt region file index");
+        }
+        this.indexOffset = (int) index;
+    }
+
+    /**
+     * Opens {@code path}, whose palettes must only use ids already assigned in {@code dictionary}.
+     */
+    public static BlockRegionReader open(Path path, BlockStateDictionary dictionary) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Region file too large to map: " + path.getFileName());
+            }
+            return new BlockRegionReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+                    dictionary.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int yOffset() {
+        return yOffset;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public int chunkX(int position) {
+        return mapped.getInt(indexEntry(position));
+    }
+
+    public int chunkZ(int position) {
+        return mapped.getInt(indexEntry(position) + 4);
+    }
+
+    /**
+     * The encoded bytes of the chunk at {@code position}, as accepted by {@link BlockRegionWriter#writeChunk}.
+     */
+    public ByteBuffer chunkBytes(int position) throws IOException {
+        int entry = indexEntry(position);
+        long offset = mapped.getLong(entry + 8);
+        int length = mapped.getInt(entry + 16);
+        if (offset < BlockRegionFormat.HEADER_BYTES || length < 0 || offset + length > indexOffset) {
+            throw new IOException("Corrupt chunk entry " + position);
+        }
+        return mapped.slice((int) offset, length);
+    }
+
+    public void forEachSection(SectionVisitor visitor) throws IOException {
+        BlockSection section = new BlockSection();
+        for (int position = 0; position < chunkCount; position++) {
+            readChunk(chunkBytes(position), yOffset, maxStateId, section, visitor);
+        }
+    }
+
+    public void readChunk(int position, BlockSection section, SectionVisitor visitor) throws IOException {
+        readChunk(chunkBytes(position), yOffset, maxStateId, section, visitor);
+    }
+
+    /**
+     * Decodes one encoded chunk, calling {@code visitor} for each of its sections with the reused
+     * {@code section} instance. Palette ids above {@code maxStateId} are rejected as corrupt.
+     */
+    public static void readChunk(ByteBuffer chunk,
+                                 int yOffset,
+                                 int maxStateId,
+                                 BlockSection section,
+                                 SectionVisitor visitor) throws IOException {
+        ByteBuffer data = chunk.duplicate();
+        try {
+            int chunkX = data.getInt();
+            int chunkZ = data.getInt();
+            int sectionCount = data.getShort() & 0xFFFF;
+            for (int s = 0; s < sectionCount; s++) {
+                int sectionY = data.getInt();
+                int lyMin = data.get();
+                int lyMax = data.get();
+                if (lyMin < 0 || lyMax > 15) {
+                    throw new IOException("Corrupt section y range " + lyMin + ".." + lyMax);
+                }
+                section.reset(chunkX, chunkZ, sectionY, lyMin, lyMax, yOffset);
+                int paletteSize = data.getShort() & 0xFFFF;
+                if (paletteSize == 0 || paletteSize > BlockRegionFormat.SECTION_BLOCKS) {
+                    throw new IOException("Corrupt section palette size " + paletteSize);
+                }
+                for (int i = 0; i < paletteSize; i++) {
+                    int stateId = data.getInt();
+                    if (stateId <= 0 || stateId > maxStateId) {
+                        throw new IOException("Unknown block state id " + stateId
+                                + " (was the block state dictionary replaced?)");
+                    }
+                    section.addPaletteEntry(stateId);
+                }
+                int bits = data.get();
+                if (bits != 0 && bits != 4 && bits != 8 && bits != 16) {
+                    throw new IOException("Corrupt section index width " + bits);
+                }
+                int packedBytes = BlockRegionFormat.packedBytes(bits);
+                section.setIndices(bits, data.slice(data.position(), packedBytes));
+                data.position(data.position() + packedBytes);
+                visitor.visit(section);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated region chunk", e);
+        }
+    }
+
+    private int indexEntry(int position) {
+        if (position < 0 || position >= chunkCount) {
+            throw new IndexOutOfBoundsException("Chunk position " + position + " of " + chunkCount);
+        }
+        return indexOffset + position * BlockRegionFormat.INDEX_ENTRY_BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface SectionVisitor {
+        void visit(BlockSection section) throws IOException;
+    }
+}
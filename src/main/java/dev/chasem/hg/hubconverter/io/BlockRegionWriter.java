@@ -0,0 +1,91 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends encoded chunks to a {@link BlockRegionFormat} file. The index and the header's chunk count are
+ * written on {@link #close}, so a file left behind by a failed run is rejected by {@link BlockRegionReader}.
+ */
+public final class BlockRegionWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int yOffset;
+    private ByteBuffer index = ByteBuffer.allocate(64 * BlockRegionFormat.INDEX_ENTRY_BYTES);
+    private int chunkCount;
+    private long position = BlockRegionFormat.HEADER_BYTES;
+
+    private BlockRegionWriter(FileChannel channel, int yOffset) throws IOException {
+        this.channel = channel;
+        this.yOffset = yOffset;
+        writeFully(header(0, 0), 0);
+    }
+
+    public static BlockRegionWriter create(Path path, int yOffset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new BlockRegionWriter(channel, yOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends one chunk as produced by {@link BlockChunkEncoder#finish()}.
+     */
+    public void writeChunk(int chunkX, int chunkZ, byte[] chunk) throws IOException {
+        writeChunk(chunkX, chunkZ, ByteBuffer.wrap(chunk));
+    }
+
+    public void writeChunk(int chunkX, int chunkZ, ByteBuffer chunk) throws IOException {
+        int length = chunk.remaining();
+        if (index.remaining() < BlockRegionFormat.INDEX_ENTRY_BYTES) {
+            ByteBuffer grown = ByteBuffer.allocate(index.capacity() * 2);
+            index.flip();
+            grown.put(index);
+            index = grown;
+        }
+        index.putInt(chunkX).putInt(chunkZ).putLong(position).putInt(length);
+        writeFully(chunk.duplicate(), position);
+        position += length;
+        chunkCount++;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            index.flip();
+            long indexOffset = position;
+            writeFully(index, indexOffset);
+            channel.truncate(indexOffset + (long) chunkCount * BlockRegionFormat.INDEX_ENTRY_BYTES);
+            writeFully(header(chunkCount, indexOffset), 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer header(int chunks, long indexOffset) {
+        ByteBuffer header = ByteBuffer.allocate(BlockRegionFormat.HEADER_BYTES);
+        header.putInt(BlockRegionFormat.MAGIC)
+                .putInt(BlockRegionFormat.VERSION)
+                .putInt(yOffset)
+                .putInt(chunks)
+                .putLong(indexOffset);
+        return header.flip();
+    }
+
+    private void writeFully(ByteBuffer data, long at) throws IOException {
+        while (data.hasRemaining()) {
+            at += channel.write(data, at);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One 16x16x16 section read from a binary region file. Instances are reused by {@link BlockRegionReader}
+ * and are only valid inside the visitor call that received them.
+ */
+public final class BlockSection {
+
+    private int chunkX;
+    private int chunkZ;
+    private int sectionY;
+    private int lyMin;
+    private int lyMax;
+    private int yOffset;
+    private int bits;
+    private int[] palette = new int[16];
+    private int paletteSize;
+    private ByteBuffer packed;
+
+    void reset(int chunkX, int chunkZ, int sectionY, int lyMin, int lyMax, int yOffset) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.sectionY = sectionY;
+        this.lyMin = lyMin;
+        this.lyMax = lyMax;
+        this.yOffset = yOffset;
+        this.paletteSize = 0;
+    }
+
+    void addPaletteEntry(int stateId) {
+        if (paletteSize + 1 >= palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        palette[++paletteSize] = stateId;
+    }
+
+    void setIndices(int bits, ByteBuffer packed) {
+        this.bits = bits;
+        this.packed = packed;
+    }
+
+    public int chunkX() {
+        return chunkX;
+    }
+
+    public int chunkZ() {
+        return chunkZ;
+    }
+
+    public int sectionY() {
+        return sectionY;
+    }
+
+    public int baseX() {
+        return chunkX * 16;
+    }
+
+    /**
+     * World y of local y 0, including the file's y offset.
+     */
+    public int baseY() {
+        return sectionY * 16 + yOffset;
+    }
+
+    public int baseZ() {
+        return chunkZ * 16;
+    }
+
+    public int lyMin() {
+        return lyMin;
+    }
+
+    public int lyMax() {
+        return lyMax;
+    }
+
+    public int paletteSize() {
+        return paletteSize;
+    }
+
+    /**
+     * Returns the {@link BlockStateDictionary} id of palette entry {@code index} (1-based; 0 is "no block"
+     * and has no entry).
+     */
+    public int stateId(int index) {
+        return palette[index];
+    }
+
+    public boolean isUniform() {
+        return bits == 0;
+    }
+
+    public int bits() {
+        return bits;
+    }
+
+    /**
+     * The packed index bytes exactly as stored, for writers that copy a section with a new palette.
+     */
+    public ByteBuffer packedIndices() {
+        return packed.duplicate();
+    }
+
+    /**
+     * Expands the packed indices into {@code out[0..4095]} in y/z/x order. Entries outside
+     * {@code lyMin..lyMax} are returned as stored; callers skip them by y.
+     */
+    public void unpack(int[] out) {
+        int base = packed.position();
+        switch (bits) {
+            case 0 -> Arrays.fill(out, 0, BlockRegionFormat.SECTION_BLOCKS, 1);
+            case 4 -> {
+                for (int i = 0; i < BlockRegionFormat.SECTION_BLOCKS; i += 2) {
+                    int value = packed.get(base + (i >> 1)) & 0xFF;
+                    out[i] = value & 0x0F;
+                    out[i + 1] = value >>> 4;
+                }
+            }
+            case 8 -> {
+                for (int i = 0; i < BlockRegionFormat.SECTION_BLOCKS; i++) {
+                    out[i] = packed.get(base + i) & 0xFF;
+                }
+            }
+            default -> {
+                for (int i = 0; i < BlockRegionFormat.SECTION_BLOCKS; i++) {
+                    out[i] = packed.getShort(base + i * 2) & 0xFFFF;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the present blocks per palette entry to {@code counts[1..paletteSize]}, using {@code scratch}
+     * (at least 4096 values) for unpacking. Palettes hold at most 4096 entries.
+     */
+    public void countBlocks(long[] counts, int[] scratch) {
+        int layers = lyMax - lyMin + 1;
+        if (layers <= 0) {
+            return;
+        }
+        if (isUniform()) {
+            counts[1] += layers * 256L;
+            return;
+        }
+        unpack(scratch);
+        for (int i = lyMin << 8, end = (lyMax + 1) << 8; i < end; i++) {
+            int index = scratch[i];
+            if (index != 0 && index <= paletteSize) {
+                counts[index]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dev.chasem.hg.hubconverter.io;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only table that gives every block state string the pipeline sees (Minecraft states from extract,
+ * Hytale targets from convert) a dense {@code int} id. Region files store these ids instead of names.
+ *
+ * <p>Ids start at 1 so that 0 can mean "no block", and are never reassigned: the file is one name per line
+ * (line {@code n} is id {@code n}) and only grows, so region files written earlier stay readable.
+ * {@link #idOf} is safe to call from many threads.
+ */
+public final class BlockStateDictionary {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final Map<Path, BlockStateDictionary> OPEN = new HashMap<>();
+
+    private final Path file;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private int size;
+    private int savedSize;
+
+    private BlockStateDictionary(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the dictionary persisted at {@code file}, loading it on first use. Every stage in this
+     * process shares the same instance, so ids handed out by one are immediately visible to the others.
+     */
+    public static synchronized BlockStateDictionary open(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        BlockStateDictionary dictionary = OPEN.get(key);
+        if (dictionary == null) {
+            dictionary = new BlockStateDictionary(key);
+            dictionary.load();
+            OPEN.put(key, dictionary);
+        }
+        return dictionary;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                add(line);
+            }
+            savedSize = size;
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to read block state dictionary %s: %s", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the id of {@code name}, assigning the next free id if it has none yet.
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            return id != null ? id : add(name);
+        }
+    }
+
+    /**
+     * Returns the id of {@code name}, or 0 if it has none.
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : 0;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * The highest id assigned so far.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns a table indexed by id (entry 0 is unused) covering every id assigned so far.
+     */
+    public String[] names() {
+        int count = size();
+        return Arrays.copyOf(names, count + 1);
+    }
+
+    /**
+     * Appends the ids assigned since the last save, or rewrites the whole file if it has gone missing.
+     */
+    public synchronized void save() {
+        if (savedSize == size && Files.exists(file)) {
+            return;
+        }
+        int from = Files.exists(file) ? savedSize + 1 : 1;
+        try {
+            Path parent = file.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                for (int id = from; id <= size; id++) {
+                    writer.write(names[id]);
+                    writer.newLine();
+                }
+            }
+            savedSize = size;
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to write block state dictionary %s: %s", file, e.getMessage());
+        }
+    }
+
+    private int add(String name) {
+        int id = size + 1;
+        String[] table = names;
+        if (id >= table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[id] = name;
+        names = table;
+        size = id;
+        ids.putIfAbsent(name, id);
+        return id;
+    }
+}
@@ -0,0 +1,266 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a CSV whose rows are grouped by chunk and the chunks sorted by x, then z, with a {@link CsvChunkIndex}
+ * next to it, so a spawner can hand each worker whole chunks. Rows keep their input order within a chunk.
+ *
+ * <p>Rows are buffered per chunk. Once the chunk buffers have allocated more than {@code memoryBytes}, the
+ * chunks are written out in order as a sorted run next to the output; {@link #close()} then merges the runs
+ * chunk by chunk, so input in any order is sorted in about {@code memoryBytes} of memory. Not thread-safe.
+ */
+public final class ChunkSortedCsvWriter implements AutoCloseable {
+
+    private static final int INITIAL_CHUNK_BYTES = 1024;
+
+    private final Path path;
+    private final long memoryBytes;
+    private final CsvRowEncoder rows = CsvRowEncoder.wrap(new RowChannel());
+    private final ChunkBytes header = new ChunkBytes(0);
+    private final Map<Long, ChunkBytes> chunks = new HashMap<>();
+    private final List<Run> runs = new ArrayList<>();
+    private ChunkBytes current = header;
+    // Allocated capacity of the chunk buffers, which is what they cost on the heap.
+    private long bufferedBytes;
+
+    private ChunkSortedCsvWriter(Path path, long memoryBytes) {
+        this.path = path;
+        this.memoryBytes = Math.max(1, memoryBytes);
+    }
+
+    /**
+     * Starts {@code path}; nothing is written until {@link #close()}.
+     */
+    public static ChunkSortedCsvWriter create(Path path, long memoryBytes) {
+        return new ChunkSortedCsvWriter(path, memoryBytes);
+    }
+
+    /**
+     * The encoder for lines that go ahead of every chunk; only valid before the first {@link #row}.
+     */
+    public CsvRowEncoder header() {
+        return rows;
+    }
+
+    /**
+     * The encoder for one row of chunk ({@code chunkX}, {@code chunkZ}); the row ends at the next call.
+     */
+    public CsvRowEncoder row(int chunkX, int chunkZ) throws IOException {
+        rows.flush();
+        if (bufferedBytes > memoryBytes) {
+            spill();
+        }
+        long key = key(chunkX, chunkZ);
+        if (current == header || current.key != key) {
+            current = chunks.get(key);
+            if (current == null) {
+                current = new ChunkBytes(key);
+                chunks.put(key, current);
+                bufferedBytes += INITIAL_CHUNK_BYTES;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the sorted CSV and its index, merging any runs, and deletes the runs.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            rows.flush();
+            if (!runs.isEmpty() && !chunks.isEmpty()) {
+                spill();
+            }
+            CsvChunkIndex index = new CsvChunkIndex();
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long offset = header.writeTo(out);
+                if (runs.isEmpty()) {
+                    for (long key : sortedKeys()) {
+                        ChunkBytes chunk = chunks.get(key);
+                        index.add(chunkX(key), chunkZ(key), offset, chunk.size);
+                        offset += chunk.writeTo(out);
+                    }
+                } else {
+                    merge(out, offset, index);
+                }
+            }
+            index.save(path);
+        } finally {
+            for (Run run : runs) {
+                Files.deleteIfExists(run.file);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered chunks, in key order, to a new run file and empties the buffer.
+     */
+    private void spill() throws IOException {
+        long[] keys = sortedKeys();
+        long[] lengths = new long[keys.length];
+        Path file = path.resolveSibling(path.getFileName() + ".run" + runs.size() + ".tmp");
+        runs.add(new Run(file, keys, lengths));
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < keys.length; i++) {
+                lengths[i] = chunks.get(keys[i]).writeTo(out);
+            }
+        }
+        chunks.clear();
+        bufferedBytes = 0;
+        current = header;
+    }
+
+    /**
+     * Copies the runs into {@code out} one chunk at a time: for the smallest key still pending, the matching
+     * chunk of every run, in run order, so rows stay in input order.
+     */
+    private void merge(FileChannel out, long offset, CsvChunkIndex index) throws IOException {
+        FileChannel[] inputs = new FileChannel[runs.size()];
+        try {
+            for (int r = 0; r < inputs.length; r++) {
+                inputs[r] = FileChannel.open(runs.get(r).file, StandardOpenOption.READ);
+            }
+            int[] next = new int[inputs.length];
+            long[] positions = new long[inputs.length];
+            while (true) {
+                boolean pending = false;
+                long key = 0;
+                for (int r = 0; r < inputs.length; r++) {
+                    Run run = runs.get(r);
+                    if (next[r] < run.keys.length && (!pending || run.keys[next[r]] < key)) {
+                        key = run.keys[next[r]];
+                        pending = true;
+                    }
+                }
+                if (!pending) {
+                    return;
+                }
+                long start = offset;
+                for (int r = 0; r < inputs.length; r++) {
+                    Run run = runs.get(r);
+                    if (next[r] < run.keys.length && run.keys[next[r]] == key) {
+                        long length = run.lengths[next[r]];
+                        transfer(inputs[r], positions[r], length, out);
+                        positions[r] += length;
+                        offset += length;
+                        next[r]++;
+                    }
+                }
+                index.add(chunkX(key), chunkZ(key), start, offset - start);
+            }
+        } finally {
+            for (FileChannel input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    private long[] sortedKeys() {
+        long[] keys = new long[chunks.size()];
+        int i = 0;
+        for (long key : chunks.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private static void transfer(FileChannel source, long position, long length, FileChannel target)
+            throws IOException {
+        long done = 0;
+        while (done < length) {
+            done += source.transferTo(position + done, length - done, target);
+        }
+    }
+
+    /**
+     * Packs a chunk position so that keys sort by x, then z; z's sign bit is flipped to keep negative z first.
+     */
+    private static long key(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | Integer.toUnsignedLong(chunkZ ^ Integer.MIN_VALUE);
+    }
+
+    private static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int chunkZ(long key) {
+        return (int) key ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Receives the encoder's flushed bytes for the current chunk.
+     */
+    private final class RowChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            int grown = current.append(source);
+            if (current != header) {
+                bufferedBytes += grown;
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class ChunkBytes {
+        private final long key;
+        private byte[] data = new byte[INITIAL_CHUNK_BYTES];
+        private int size;
+
+        private ChunkBytes(long key) {
+            this.key = key;
+        }
+
+        /**
+         * Appends {@code source} and returns how many bytes the buffer grew by.
+         */
+        private int append(ByteBuffer source) {
+            int length = source.remaining();
+            int capacity = data.length;
+            if (size + length > capacity) {
+                data = Arrays.copyOf(data, Math.max(size + length, capacity * 2));
+            }
+            source.get(data, size, length);
+            size += length;
+            return data.length - capacity;
+        }
+
+        private long writeTo(FileChannel out) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(data, 0, size);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            return size;
+        }
+    }
+
+    private record Run(Path file, long[] keys, long[] lengths) {
+    }
+}
@@ -0,0 +1,123 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The byte range of each chunk of a chunk-sorted CSV, saved next to it as {@code <csv file>.chunks}:
+ *
+ * <pre>
+ * bytes=&lt;size of the CSV file&gt;
+ * chunk_x,chunk_z,offset,length
+ * </pre>
+ *
+ * <p>Chunks are listed in file order and each range holds whole lines. An index whose recorded size no longer
+ * matches its CSV is treated as missing, so a CSV rewritten by other means is simply read unindexed.
+ */
+public final class CsvChunkIndex {
+
+    public static final String EXTENSION = ".chunks";
+
+    private static final String BYTES_KEY = "bytes=";
+    private static final String HEADER = "chunk_x,chunk_z,offset,length";
+
+    private int size;
+    private int[] chunkXs = new int[64];
+    private int[] chunkZs = new int[64];
+    private long[] offsets = new long[64];
+    private long[] lengths = new long[64];
+
+    CsvChunkIndex() {
+    }
+
+    public static Path pathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Reads the index of {@code csvFile}, or returns null if there is none, it cannot be read or it is stale.
+     */
+    public static CsvChunkIndex load(Path csvFile) {
+        Path file = pathFor(csvFile);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String first = reader.readLine();
+            if (first == null || !first.startsWith(BYTES_KEY)
+                    || Long.parseLong(first.substring(BYTES_KEY.length()).trim()) != Files.size(csvFile)) {
+                return null;
+            }
+            CsvChunkIndex index = new CsvChunkIndex();
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length < 4) {
+                    continue;
+                }
+                index.add(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                        Long.parseLong(parts[2].trim()), Long.parseLong(parts[3].trim()));
+            }
+            return index;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int chunkX(int position) {
+        return chunkXs[position];
+    }
+
+    public int chunkZ(int position) {
+        return chunkZs[position];
+    }
+
+    public long offset(int position) {
+        return offsets[position];
+    }
+
+    public long length(int position) {
+        return lengths[position];
+    }
+
+    void add(int chunkX, int chunkZ, long offset, long length) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            chunkXs = Arrays.copyOf(chunkXs, capacity);
+            chunkZs = Arrays.copyOf(chunkZs, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        chunkXs[size] = chunkX;
+        chunkZs[size] = chunkZ;
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Saves the index next to {@code csvFile}, which must already be complete.
+     */
+    void save(Path csvFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(pathFor(csvFile), StandardCharsets.UTF_8)) {
+            writer.write(BYTES_KEY + Files.size(csvFile));
+            writer.newLine();
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i < size; i++) {
+                writer.write(chunkXs[i] + "," + chunkZs[i] + "," + offsets[i] + "," + lengths[i]);
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense ids (from 0) to the distinct byte strings of a CSV column, so per-row lookups hash and
+ * compare bytes instead of decoding a String. Each name is decoded once, on first request. Not thread-safe.
+ */
+public final class CsvNameTable {
+
+    private int[] slots = new int[256];
+    private int[] hashes = new int[64];
+    private byte[][] keys = new byte[64][];
+    private String[] names = new String[64];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the id of {@code buffer[start..end)}, adding it if it has not been seen.
+     */
+    public int intern(ByteBuffer buffer, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(buffer, start, end, hash, slot);
+            }
+            if (hashes[id] == hash && matches(keys[id], buffer, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    public String name(int id) {
+        String name = names[id];
+        if (name == null) {
+            name = new String(keys[id], StandardCharsets.UTF_8);
+            names[id] = name;
+        }
+        return name;
+    }
+
+    private int add(ByteBuffer buffer, int start, int end, int hash, int slot) {
+        if (size == keys.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+        }
+        byte[] key = new byte[end - start];
+        buffer.get(start, key);
+        int id = size++;
+        hashes[id] = hash;
+        keys[id] = key;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
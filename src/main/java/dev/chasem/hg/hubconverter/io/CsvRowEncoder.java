@@ -0,0 +1,173 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes CSV text as UTF-8 bytes straight into a reusable direct buffer that is flushed to a channel,
+ * usually a {@link FileChannel}. Integers are formatted digit by digit and names are written from pre-encoded bytes,
+ * so emitting a row allocates nothing. Lines end with the platform line separator, as
+ * {@link java.io.BufferedWriter#newLine()} does.
+ */
+public final class CsvRowEncoder implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    // Enough for "-2147483648,-2147483648,-2147483648," and a line separator.
+    private static final int MAX_ROW_PREFIX_BYTES = 40;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    private CsvRowEncoder(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public static CsvRowEncoder create(Path path) throws IOException {
+        return new CsvRowEncoder(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    static CsvRowEncoder wrap(WritableByteChannel channel) {
+        return new CsvRowEncoder(channel);
+    }
+
+    /**
+     * Writes {@code x,y,z,block} and a line separator.
+     */
+    public void writeRow(int x, int y, int z, byte[] block) throws IOException {
+        ensure(MAX_ROW_PREFIX_BYTES + block.length);
+        putInt(x);
+        buffer.put((byte) ',');
+        putInt(y);
+        buffer.put((byte) ',');
+        putInt(z);
+        buffer.put((byte) ',');
+        buffer.put(block);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensure(11);
+        putInt(value);
+    }
+
+    public void writeByte(char ascii) throws IOException {
+        ensure(1);
+        buffer.put((byte) ascii);
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            flush();
+            writeFully(ByteBuffer.wrap(bytes));
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Copies {@code source[from..to)}, e.g. a field of a {@link CsvScanner} row, without touching its position.
+     */
+    public void writeBytes(ByteBuffer source, int from, int to) throws IOException {
+        int length = to - from;
+        if (length > buffer.capacity()) {
+            flush();
+            writeFully(source.slice(from, length));
+            return;
+        }
+        ensure(length);
+        buffer.put(buffer.position(), source, from, length);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Writes {@code value} as UTF-8; ASCII text is copied without allocating.
+     */
+    public void writeString(String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        if (length > buffer.capacity()) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    public void newLine() throws IOException {
+        ensure(LINE_SEPARATOR.length);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putInt(int value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            if (value == Integer.MIN_VALUE) {
+                buffer.put((byte) '2');
+                value = -147483648;
+            }
+            value = -value;
+        }
+        if (value < 10) {
+            buffer.put((byte) ('0' + value));
+            return;
+        }
+        int digits = digitCount(value);
+        int end = buffer.position() + digits;
+        for (int at = end - 1; at >= end - digits; at--) {
+            buffer.put(at, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private static int digitCount(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package dev.chasem.hg.hubconverter.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a CSV file row by row from memory-mapped windows without decoding it into Strings. Line ends and
+ * commas are found eight bytes at a time; fields are exposed as byte ranges of {@link #buffer()}, parsed
+ * as ints in place, or interned through a {@link CsvNameTable}. Fields split on every comma, exactly like
+ * {@code String.split(",", -1)}, and lines end at {@code \n} with an optional preceding {@code \r}.
+ */
+public final class CsvScanner implements AutoCloseable {
+
+    private static final long DEFAULT_WINDOW_BYTES = 64L << 20;
+    private static final long MAX_WINDOW_BYTES = Integer.MAX_VALUE - 8;
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long COMMAS = 0x0101010101010101L * ',';
+    private static final long NEWLINES = 0x0101010101010101L * '\n';
+
+    private final FileChannel channel;
+    private final long rangeEnd;
+    private long windowBytes = DEFAULT_WINDOW_BYTES;
+    private ByteBuffer window;
+    private long windowStart;
+    private int position;
+    private int lineStart;
+    private int lineEnd;
+    private int fieldCount;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+
+    private CsvScanner(FileChannel channel, long offset, long length) throws IOException {
+        this.channel = channel;
+        this.rangeEnd = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+        map(Math.min(offset, rangeEnd));
+    }
+
+    public static CsvScanner open(Path path) throws IOException {
+        return open(path, 0, -1);
+    }
+
+    /**
+     * Reads only the {@code length} bytes at {@code offset}, e.g. one chunk of a {@link CsvChunkIndex}; the
+     * range should start at a line start.
+     */
+    public static CsvScanner open(Path path, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CsvScanner(channel, offset, length);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Advances to the next line, returning {@code false} at the end of the file. Field positions are only
+     * valid until the next call.
+     */
+    public boolean nextRow() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            int end = indexOfNewline(position, limit);
+            if (end >= 0) {
+                setLine(position, end);
+                position = end + 1;
+                return true;
+            }
+            if (windowStart + limit >= rangeEnd) {
+                if (position >= limit) {
+                    return false;
+                }
+                setLine(position, limit);
+                position = limit;
+                return true;
+            }
+            if (position == 0) {
+                // The line does not fit in a whole window.
+                windowBytes = Math.min(MAX_WINDOW_BYTES, windowBytes * 2);
+            }
+            map(windowStart + position);
+        }
+    }
+
+    /**
+     * Whether the current line holds only whitespace, as {@link String#isBlank()} would report.
+     */
+    public boolean isBlank() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (!isWhitespace(window.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * The mapped bytes that {@link #fieldStart(int)} and {@link #fieldEnd(int)} index into.
+     */
+    public ByteBuffer buffer() {
+        return window;
+    }
+
+    public int fieldStart(int field) {
+        return fieldStarts[field];
+    }
+
+    public int fieldEnd(int field) {
+        return fieldEnds[field];
+    }
+
+    /**
+     * Decodes one field; meant for headers and other cold paths.
+     */
+    public String field(int field) {
+        int start = fieldStarts[field];
+        byte[] bytes = new byte[fieldEnds[field] - start];
+        window.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String[] fields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = field(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Parses one field like {@code Integer.parseInt(field.trim())} without building a String.
+     *
+     * @throws NumberFormatException if the trimmed field is not a decimal int
+     */
+    public int parseInt(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        while (start < end && (window.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (window.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Empty field " + field);
+        }
+        boolean negative = false;
+        byte first = window.get(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++start == end) {
+                throw new NumberFormatException("Sign without digits in field " + field);
+            }
+        }
+        // Accumulate negatively so Integer.MIN_VALUE parses without overflowing.
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) {
+                throw new NumberFormatException("Not an int in field " + field);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Int out of range in field " + field);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Returns the {@code table} id of one field's raw bytes, adding it on first sight.
+     */
+    public int intern(int field, CsvNameTable table) {
+        return table.intern(window, fieldStarts[field], fieldEnds[field]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long offset) throws IOException {
+        long length = Math.min(windowBytes, rangeEnd - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = offset;
+        position = 0;
+    }
+
+    private void setLine(int start, int end) {
+        if (end > start && window.get(end - 1) == '\r') {
+            end--;
+        }
+        lineStart = start;
+        lineEnd = end;
+        fieldCount = 0;
+        int fieldStart = start;
+        int i = start;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            long commas = zeroBytes(window.getLong(i) ^ COMMAS);
+            while (commas != 0) {
+                int at = i + (Long.numberOfTrailingZeros(commas) >>> 3);
+                addField(fieldStart, at);
+                fieldStart = at + 1;
+                commas &= commas - 1;
+            }
+        }
+        for (; i < end; i++) {
+            if (window.get(i) == ',') {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, end);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private int indexOfNewline(int from, int limit) {
+        int i = from;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long newlines = zeroBytes(window.getLong(i) ^ NEWLINES);
+            if (newlines != 0) {
+                return i + (Long.numberOfTrailingZeros(newlines) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the high bit of every byte of {@code word} that is zero, and only those; unlike the shorter
+     * {@code (x - 0x01..) & ~x} form, no borrow leaks into the neighbouring byte.
+     */
+    private static long zeroBytes(long word) {
+        long t = (word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS;
+        return ~(t | word | LOW_SEVEN_BITS);
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value >= 0 && Character.isWhitespace((char) value);
+    }
+}
@@ -60,6 +60,10 @@ public final class HytalesHubPaths {
         return getConfigDir().resolve(config.getBlockIdsFile());
     }
 
+    public static Path getBlockStateDictionaryFile(HytalesHubConfig config) {
+        return getConfigDir().resolve(config.getBlockStateDictionaryFile());
+    }
+
     private static Path resolveConfigDir(Config<HytalesHubConfig> config, HytalesHubConverterPlugin plugin) {
         Path configPath = resolvePathFromConfig(config);
         if (configPath != null) {
@@ -5,6 +5,9 @@ import com.hypixel.hytale.server.core.universe.world.World;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -15,66 +18,110 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 public final class BlockIdSource {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
     private static final String DEFAULT_RESOURCE = "/default-block-ids.txt";
+    private static final String UNKNOWN_VERSION = "unknown";
+    private static final String SNAPSHOT_HEADER = "# HytalesHub block id snapshot, server version ";
+
+    // Probed accessors, resolved once per runtime class and then invoked through MethodHandles.
+    private static final Accessor REGISTRY = new Accessor(
+            "getBlockRegistry",
+            "getBlockTypeRegistry",
+            "getBlockTypes",
+            "getBlocks",
+            "getBlockManager");
+    private static final Accessor REGISTRY_IDS = new Accessor(
+            "getIds",
+            "getBlockIds",
+            "getKeys",
+            "keySet",
+            "getRegisteredBlocks",
+            "getBlocks",
+            "getEntries",
+            "values");
+    private static final Accessor ENTRY_ID = new Accessor("getId", "getName", "getRegistryId", "getIdentifier");
 
     private BlockIdSource() {
     }
 
+    /**
+     * Loads the Hytale block ids. With {@code useLiveRegistry}, the live registry is probed and saved as a
+     * snapshot for the running server version; when the probe yields nothing, e.g. without a world, a snapshot
+     * saved earlier for this version is used instead. Falls back to {@code blockIdsFile} when neither yields ids.
+     */
     public static List<String> loadBlockIds(boolean useLiveRegistry, World world, Path blockIdsFile) {
-        List<String> liveIds = List.of();
         if (useLiveRegistry) {
-            liveIds = tryLoadFromRegistry(world);
+            String version = serverVersion();
+            Path snapshot = snapshotPathFor(blockIdsFile, version);
+            // Without a version the snapshot could never be matched to a server, so it is neither saved nor read.
+            boolean versioned = !UNKNOWN_VERSION.equals(version);
+            List<String> liveIds = tryLoadFromRegistry(world);
             if (!liveIds.isEmpty()) {
+                if (versioned) {
+                    saveSnapshot(snapshot, version, liveIds);
+                }
                 return liveIds;
             }
+            if (versioned && Files.exists(snapshot)) {
+                List<String> snapshotIds = loadFromFile(snapshot);
+                if (!snapshotIds.isEmpty()) {
+                    return snapshotIds;
+                }
+            }
         }
 
         MappingFileBootstrap.copyResourceIfMissing(DEFAULT_RESOURCE, blockIdsFile);
         return loadFromFile(blockIdsFile);
     }
 
+    /**
+     * The snapshot of the live registry for server {@code version}, e.g. {@code block-ids.1.2.3.txt} next to
+     * {@code block-ids.txt}.
+     */
+    public static Path snapshotPathFor(Path blockIdsFile, String version) {
+        String name = blockIdsFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : ".txt";
+        return blockIdsFile.resolveSibling(base + "." + version.replaceAll("[^A-Za-z0-9._-]", "_") + extension);
+    }
+
+    /**
+     * The running server's version from its jar manifest, or {@code "unknown"} when it has none.
+     */
+    public static String serverVersion() {
+        Package serverPackage = World.class.getPackage();
+        String version = serverPackage != null ? serverPackage.getImplementationVersion() : null;
+        return version == null || version.isBlank() ? UNKNOWN_VERSION : version.trim();
+    }
+
     private static List<String> tryLoadFromRegistry(World world) {
         if (world == null) {
             return List.of();
         }
 
-        Object registry = invokeFirst(world,
-                "getBlockRegistry",
-                "getBlockTypeRegistry",
-                "getBlockTypes",
-                "getBlocks",
-                "getBlockManager");
+        Object registry = REGISTRY.invoke(world);
         if (registry == null) {
             return List.of();
         }
 
-        Object ids = invokeFirst(registry,
-                "getIds",
-                "getBlockIds",
-                "getKeys",
-                "keySet",
-                "getRegisteredBlocks",
-                "getBlocks",
-                "getEntries",
-                "values");
-
-        return extractIds(ids);
+        return extractIds(REGISTRY_IDS.invoke(registry));
     }
 
-    private static Object invokeFirst(Object target, String... methods) {
-        for (String methodName : methods) {
-            try {
-                Method method = target.getClass().getMethod(methodName);
-                return method.invoke(target);
-            } catch (Exception ignored) {
-                continue;
-            }
+    private static void saveSnapshot(Path snapshot, String version, List<String> ids) {
+        List<String> lines = new ArrayList<>(ids.size() + 1);
+        lines.add(SNAPSHOT_HEADER + version);
+        lines.addAll(new TreeSet<>(ids));
+        try {
+            Files.createDirectories(snapshot.getParent());
+            Files.write(snapshot, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to write block id snapshot %s: %s", snapshot, e.getMessage());
         }
-        return null;
     }
 
     private static List<String> extractIds(Object source) {
@@ -111,7 +158,7 @@ public final class BlockIdSource {
             return;
         }
 
-        Object value = invokeFirst(entry, "getId", "getName", "getRegistryId", "getIdentifier");
+        Object value = ENTRY_ID.invoke(entry);
         if (value instanceof String str && !str.isBlank()) {
             ids.add(str);
             return;
@@ -134,7 +181,7 @@ public final class BlockIdSource {
             String line;
             while ((line = reader.readLine()) != null) {
                 String trimmed = line.trim();
-                if (!trimmed.isEmpty()) {
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
                     ids.add(trimmed);
                 }
             }
@@ -144,4 +191,55 @@ public final class BlockIdSource {
 
         return ids;
     }
+
+    /**
+     * The public no-arg methods, out of a list of guessed names, that a runtime class has. The lookup runs once
+     * per class; later calls go straight to the cached handles.
+     */
+    private static final class Accessor extends ClassValue<List<MethodHandle>> {
+        private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+        private final String[] methodNames;
+
+        private Accessor(String... methodNames) {
+            this.methodNames = methodNames;
+        }
+
+        @Override
+        protected List<MethodHandle> computeValue(Class<?> type) {
+            List<MethodHandle> handles = new ArrayList<>();
+            for (String methodName : methodNames) {
+                try {
+                    Method method = type.getMethod(methodName);
+                    if (method.getParameterCount() == 0) {
+                        handles.add(MethodHandles.publicLookup().unreflect(method).asType(GETTER));
+                    }
+                } catch (NoSuchMethodException | IllegalAccessException | SecurityException ignored) {
+                    continue;
+                }
+            }
+            return List.copyOf(handles);
+        }
+
+        /**
+         * Calls the accessors on {@code target} in order and returns the first non-null result, or null if
+         * none has one.
+         */
+        private Object invoke(Object target) {
+            for (MethodHandle handle : get(target.getClass())) {
+                try {
+                    Object value = (Object) handle.invokeExact(target);
+                    if (value != null) {
+                        return value;
+                    }
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable ignored) {
+                    // invokeExact declares Throwable; an accessor that throws an exception is skipped.
+                    continue;
+                }
+            }
+            return null;
+        }
+    }
 }
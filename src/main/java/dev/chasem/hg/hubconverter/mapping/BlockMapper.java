@@ -3,6 +3,12 @@ package dev.chasem.hg.hubconverter.mapping;
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.universe.world.World;
 import dev.chasem.hg.hubconverter.config.HytalesHubConfig;
+import dev.chasem.hg.hubconverter.io.BlockHistogram;
+import dev.chasem.hg.hubconverter.io.BlockRegionFormat;
+import dev.chasem.hg.hubconverter.io.BlockRegionReader;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
+import dev.chasem.hg.hubconverter.io.CsvNameTable;
+import dev.chasem.hg.hubconverter.io.CsvScanner;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -10,8 +16,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -46,6 +53,12 @@ public class BlockMapper {
             Map.entry("mossy", List.of("mossy"))
     );
 
+    private final BlockStateDictionary dictionary;
+
+    public BlockMapper(BlockStateDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
     public MapResult mapBlocks(Path mcRegionsDir,
                                Path mappingFile,
                                Path unmappedFile,
@@ -53,32 +66,119 @@ public class BlockMapper {
                                Path blockIdsFile,
                                HytalesHubConfig config,
                                World world) {
-        Map<String, Integer> mcCounts = loadMcCounts(mcRegionsDir);
-        if (mcCounts.isEmpty()) {
-            return new MapResult(0, 0, 0, 0);
-        }
+        return mapCounts(loadMcCounts(mcRegionsDir), mappingFile, unmappedFile, overridesFile, blockIdsFile,
+                config, world);
+    }
 
+    /**
+     * Same as {@link #mapBlocks}, for block counts by state name that were gathered elsewhere (e.g. by a
+     * streaming import) rather than read from {@code mc-regions}.
+     */
+    public MapResult mapHistogram(Map<String, Long> histogram,
+                                  Path mappingFile,
+                                  Path unmappedFile,
+                                  Path overridesFile,
+                                  Path blockIdsFile,
+                                  HytalesHubConfig config,
+                                  World world) {
+        Map<String, Integer> mcCounts = new LinkedHashMap<>();
+        addHistogram(mcCounts, histogram);
+        return mapCounts(mcCounts, mappingFile, unmappedFile, overridesFile, blockIdsFile, config, world);
+    }
+
+    /**
+     * Returns a matcher giving the Hytale block {@link #mapBlocks} would map each Minecraft block state to,
+     * for imports that meet blocks one at a time instead of counting them first.
+     */
+    public Matcher openMatcher(Path overridesFile, Path blockIdsFile, HytalesHubConfig config, World world) {
         Map<String, String> overrides = BlockOverrides.load(overridesFile);
-        List<String> hytaleBlocks = BlockIdSource.loadBlockIds(config.isUseLiveBlockRegistry(), world, blockIdsFile)
-                .stream()
-                .filter(id -> !BANNED_TARGETS.contains(id))
-                .toList();
-        Set<String> hytaleBlockSet = new HashSet<>(hytaleBlocks);
+        List<String> hytaleBlocks = loadHytaleBlocks(blockIdsFile, config, world);
         Map<String, List<String>> hytaleTokensMap = new HashMap<>();
         for (String block : hytaleBlocks) {
             hytaleTokensMap.put(block, hytaleTokens(block));
         }
+        return new Matcher(overrides, new TokenIndex(hytaleTokensMap), config.getMapMinScore());
+    }
+
+    private MapResult mapCounts(Map<String, Integer> mcCounts,
+                                Path mappingFile,
+                                Path unmappedFile,
+                                Path overridesFile,
+                                Path blockIdsFile,
+                                HytalesHubConfig config,
+                                World world) {
+        if (mcCounts.isEmpty()) {
+            return new MapResult(0, 0, 0, 0);
+        }
+
+        Map<String, String> overrides = BlockOverrides.load(overridesFile);
+        List<String> hytaleBlocks = loadHytaleBlocks(blockIdsFile, config, world);
+        Set<String> hytaleBlockSet = new HashSet<>(hytaleBlocks);
+
+        MappingFingerprint fingerprint = MappingFingerprint.compute(hytaleBlocks, overrides, config.getMapMinScore());
+        Path fingerprintFile = MappingFingerprint.pathFor(mappingFile);
+        Map<String, MappingRow> previousRows = config.isMapIncremental()
+                ? loadReusableRows(mappingFile, fingerprintFile, fingerprint)
+                : Map.of();
 
         List<MappingRow> rows = new ArrayList<>();
         List<String> unmatched = new ArrayList<>();
 
         List<String> mcBlocks = new ArrayList<>(mcCounts.keySet());
+        // Property-conditional overrides (e.g. minecraft:oak_log[axis=x]) become manual rows of their own,
+        // sorted next to the block they refine, so the converter can apply them per block state.
+        for (String key : overrides.keySet()) {
+            if (BlockStateRules.hasConditions(key) && mcCounts.containsKey(key.substring(0, key.indexOf('[')))) {
+                mcBlocks.add(key);
+            }
+        }
         mcBlocks.sort(String::compareToIgnoreCase);
 
+        // Score every block that needs a heuristic match up front, in parallel, against only the Hytale
+        // blocks that share a token with it.
+        Map<String, TokenIndex.Match> heuristicMatches = new HashMap<>();
+        List<String> heuristicBlocks = new ArrayList<>();
+        List<List<String>> heuristicTokens = new ArrayList<>();
+        for (String mcBlock : mcBlocks) {
+            if (mcBlock != null && !mcBlock.isBlank() && !overrides.containsKey(mcBlock)
+                    && !previousRows.containsKey(mcBlock)) {
+                heuristicBlocks.add(mcBlock);
+                heuristicTokens.add(mcTokens(mcBlock));
+            }
+        }
+        if (!heuristicBlocks.isEmpty()) {
+            Map<String, List<String>> hytaleTokensMap = new HashMap<>();
+            for (String block : hytaleBlocks) {
+                hytaleTokensMap.put(block, hytaleTokens(block));
+            }
+            int threads = config.getMapThreads() > 0
+                    ? config.getMapThreads()
+                    : Runtime.getRuntime().availableProcessors();
+            TokenIndex.Match[] matches = new TokenIndex(hytaleTokensMap).bestMatches(heuristicTokens, threads);
+            for (int i = 0; i < matches.length; i++) {
+                heuristicMatches.put(heuristicBlocks.get(i), matches[i]);
+            }
+        }
+        if (config.isMapIncremental()) {
+            LOGGER.atInfo().log("[HytalesHub] Incremental map: scored=%d reusable=%d",
+                    heuristicBlocks.size(), previousRows.size());
+        }
+
         for (String mcBlock : mcBlocks) {
             if (mcBlock == null || mcBlock.isBlank()) {
                 continue;
             }
+            MappingRow previous = previousRows.get(mcBlock);
+            if (previous != null && previous.source.equals("manual") == overrides.containsKey(mcBlock)) {
+                rows.add(previous);
+                boolean previouslyUnmatched = previous.source.equals("manual")
+                        ? previous.hytaleBlock.isBlank() || !hytaleBlockSet.contains(previous.hytaleBlock)
+                        : !previous.source.equals("heuristic");
+                if (previouslyUnmatched) {
+                    unmatched.add(mcBlock);
+                }
+                continue;
+            }
             if (overrides.containsKey(mcBlock)) {
                 String hytaleBlock = overrides.get(mcBlock);
                 rows.add(new MappingRow(mcBlock, hytaleBlock, 1.0f, "manual"));
@@ -88,16 +188,9 @@ public class BlockMapper {
                 continue;
             }
 
-            List<String> tokens = mcTokens(mcBlock);
-            float bestScore = 0.0f;
-            String bestMatch = "";
-            for (Map.Entry<String, List<String>> entry : hytaleTokensMap.entrySet()) {
-                float score = scoreMatch(tokens, entry.getValue());
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestMatch = entry.getKey();
-                }
-            }
+            TokenIndex.Match match = heuristicMatches.get(mcBlock);
+            float bestScore = match.score();
+            String bestMatch = match.block();
 
             if (bestScore >= config.getMapMinScore()) {
                 rows.add(new MappingRow(mcBlock, bestMatch, roundScore(bestScore), "heuristic"));
@@ -107,7 +200,15 @@ public class BlockMapper {
             }
         }
 
-        writeMapping(mappingFile, rows);
+        // Drop the fingerprint first so a failed write can never pair new inputs with an old mapping.
+        try {
+            Files.deleteIfExists(fingerprintFile);
+            if (writeMapping(mappingFile, rows)) {
+                fingerprint.save(fingerprintFile);
+            }
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to write %s: %s", fingerprintFile, e.getMessage());
+        }
         writeUnmatched(unmappedFile, unmatched);
         return new MapResult(mcCounts.size(), rows.size(), unmatched.size(), hytaleBlocks.size());
     }
@@ -118,30 +219,99 @@ public class BlockMapper {
             return counts;
         }
 
-        List<Path> csvFiles = new ArrayList<>();
-        try (var stream = Files.list(mcRegionsDir)) {
-            stream.filter(path -> path.getFileName().toString().toLowerCase().endsWith(".csv"))
-                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
-                    .forEach(csvFiles::add);
-        } catch (IOException e) {
-            LOGGER.atWarning().log("[HytalesHub] Failed to list CSVs in %s: %s", mcRegionsDir, e.getMessage());
+        List<Path> inputs = BlockRegionFormat.listStageInputs(mcRegionsDir);
+        Map<String, Long> histogram = readHistogram(mcRegionsDir, inputs);
+        if (histogram != null) {
+            addHistogram(counts, histogram);
             return counts;
         }
 
-        for (Path csv : csvFiles) {
-            loadBlocksFromCsv(csv, counts);
+        // Region files are counted per state id and only turned into names once at the end.
+        long[] stateCounts = new long[dictionary.size() + 1];
+        for (Path input : inputs) {
+            if (BlockRegionFormat.isRegionFile(input)) {
+                loadBlocksFromRegion(input, stateCounts);
+            } else {
+                loadBlocksFromCsv(input, counts);
+            }
+        }
+        for (int stateId = 1; stateId < stateCounts.length; stateId++) {
+            if (stateCounts[stateId] == 0) {
+                continue;
+            }
+            String block = mcBaseId(dictionary.name(stateId));
+            if (!block.isBlank()) {
+                counts.merge(block, (int) Math.min(stateCounts[stateId], Integer.MAX_VALUE), Integer::sum);
+            }
         }
 
         return counts;
     }
 
+    private List<String> loadHytaleBlocks(Path blockIdsFile, HytalesHubConfig config, World world) {
+        return BlockIdSource.loadBlockIds(config.isUseLiveBlockRegistry(), world, blockIdsFile)
+                .stream()
+                .filter(id -> !BANNED_TARGETS.contains(id))
+                .toList();
+    }
+
+    private void addHistogram(Map<String, Integer> counts, Map<String, Long> histogram) {
+        histogram.forEach((name, count) -> {
+            String block = mcBaseId(name);
+            if (!block.isBlank()) {
+                counts.merge(block, (int) Math.min(count, Integer.MAX_VALUE), Integer::sum);
+            }
+        });
+    }
+
+    /**
+     * Returns the block counts recorded by the last extract, or null if there is no merged histogram or a
+     * region file was written after it (e.g. by an older extract), in which case the regions are scanned.
+     */
+    private Map<String, Long> readHistogram(Path mcRegionsDir, List<Path> inputs) {
+        Path histogramFile = mcRegionsDir.resolve(BlockRegionFormat.MERGED_HISTOGRAM);
+        if (inputs.isEmpty() || !BlockRegionFormat.isRegionFile(inputs.get(0)) || !Files.exists(histogramFile)) {
+            return null;
+        }
+        try {
+            FileTime written = Files.getLastModifiedTime(histogramFile);
+            for (Path input : inputs) {
+                if (Files.getLastModifiedTime(input).compareTo(written) > 0) {
+                    LOGGER.atInfo().log("[HytalesHub] %s is older than %s; counting region files instead",
+                            histogramFile.getFileName(), input.getFileName());
+                    return null;
+                }
+            }
+            return BlockHistogram.read(histogramFile);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to read %s: %s", histogramFile.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void loadBlocksFromRegion(Path regionFile, long[] stateCounts) {
+        long[] used = new long[BlockRegionFormat.SECTION_BLOCKS + 1];
+        int[] scratch = new int[BlockRegionFormat.SECTION_BLOCKS];
+        try (BlockRegionReader reader = BlockRegionReader.open(regionFile, dictionary)) {
+            reader.forEachSection(section -> {
+                int paletteSize = section.paletteSize();
+                Arrays.fill(used, 0, paletteSize + 1, 0L);
+                section.countBlocks(used, scratch);
+                for (int entry = 1; entry <= paletteSize; entry++) {
+                    stateCounts[section.stateId(entry)] += used[entry];
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to read %s: %s", regionFile.getFileName(), e.getMessage());
+        }
+    }
+
     private void loadBlocksFromCsv(Path csvFile, Map<String, Integer> counts) {
-        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        try (CsvScanner reader = CsvScanner.open(csvFile)) {
+            if (!reader.nextRow()) {
                 return;
             }
-            String[] header = headerLine.split(",", -1);
+            String[] header = reader.fields();
             int blockIdx = findColumnIndex(header, "block");
             if (blockIdx == -1) {
                 blockIdx = 3;
@@ -153,18 +323,23 @@ public class BlockMapper {
                 }
             }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isBlank()) {
+            // Count raw column values by interned id and only build base ids once per distinct value.
+            CsvNameTable names = new CsvNameTable();
+            int[] nameCounts = new int[256];
+            while (reader.nextRow()) {
+                if (reader.isBlank() || reader.fieldCount() <= blockIdx) {
                     continue;
                 }
-                String[] parts = line.split(",", -1);
-                if (parts.length <= blockIdx) {
-                    continue;
+                int nameId = reader.intern(blockIdx, names);
+                if (nameId >= nameCounts.length) {
+                    nameCounts = Arrays.copyOf(nameCounts, nameCounts.length * 2);
                 }
-                String block = mcBaseId(parts[blockIdx]);
+                nameCounts[nameId]++;
+            }
+            for (int nameId = 0; nameId < names.size(); nameId++) {
+                String block = mcBaseId(names.name(nameId));
                 if (!block.isBlank()) {
-                    counts.merge(block, 1, Integer::sum);
+                    counts.merge(block, nameCounts[nameId], Integer::sum);
                 }
             }
         } catch (IOException e) {
@@ -219,29 +394,49 @@ public class BlockMapper {
         return TokenUtils.normalizeTokens(TokenUtils.tokenize(blockId), TOKEN_SYNONYMS);
     }
 
-    private float scoreMatch(List<String> tokens, List<String> candidateTokens) {
-        if (tokens.isEmpty() || candidateTokens.isEmpty()) {
-            return 0.0f;
+    private float roundScore(float score) {
+        return Math.round(score * 1000f) / 1000f;
+    }
+
+    /**
+     * Reads the rows of the previous mapping that are still valid for {@code current}: heuristic and
+     * unmapped rows when the Hytale blocks and minimum score are unchanged, plus manual rows when the
+     * overrides are unchanged as well. Returns an empty map when nothing can be reused.
+     */
+    private Map<String, MappingRow> loadReusableRows(Path mappingFile,
+                                                     Path fingerprintFile,
+                                                     MappingFingerprint current) {
+        MappingFingerprint previous = MappingFingerprint.load(fingerprintFile);
+        if (previous == null || !previous.heuristic().equals(current.heuristic()) || !Files.exists(mappingFile)) {
+            return Map.of();
         }
-        Set<String> tSet = new HashSet<>(tokens);
-        Set<String> cSet = new HashSet<>(candidateTokens);
-        int overlap = 0;
-        for (String token : tSet) {
-            if (cSet.contains(token)) {
-                overlap++;
+        boolean overridesUnchanged = previous.overrides().equals(current.overrides());
+        String unmappedSource = UNMAPPED_VALUE.toLowerCase(Locale.ROOT);
+        Map<String, MappingRow> rows = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(mappingFile, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                String[] parts = BlockStateRules.splitRow(line);
+                if (parts.length < 4 || parts[0].isBlank()) {
+                    continue;
+                }
+                String source = parts[3];
+                if (source.equals("manual") && !overridesUnchanged) {
+                    continue;
+                }
+                if (!source.equals("manual") && !source.equals("heuristic") && !source.equals(unmappedSource)) {
+                    continue;
+                }
+                rows.put(parts[0], new MappingRow(parts[0], parts[1], Float.parseFloat(parts[2]), source));
             }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to reuse %s: %s", mappingFile, e.getMessage());
+            return Map.of();
         }
-        if (overlap == 0) {
-            return 0.0f;
-        }
-        return (2.0f * overlap) / (tSet.size() + cSet.size());
-    }
-
-    private float roundScore(float score) {
-        return Math.round(score * 1000f) / 1000f;
+        return rows;
     }
 
-    private void writeMapping(Path mappingFile, List<MappingRow> rows) {
+    private boolean writeMapping(Path mappingFile, List<MappingRow> rows) {
         try {
             Files.createDirectories(mappingFile.getParent());
         } catch (IOException e) {
@@ -256,8 +451,10 @@ public class BlockMapper {
                         + "," + row.score + "," + row.source);
                 writer.newLine();
             }
+            return true;
         } catch (IOException e) {
             LOGGER.atWarning().log("[HytalesHub] Failed to write mapping file %s: %s", mappingFile, e.getMessage());
+            return false;
         }
     }
 
@@ -280,6 +477,48 @@ public class BlockMapper {
         }
     }
 
+    /**
+     * Maps block states with the overrides (including property-conditional ones) first and the name
+     * heuristic second, scoring each base block once. Safe to call from several threads.
+     */
+    public final class Matcher {
+        private final Map<String, String> overrides;
+        private final BlockStateRules rules;
+        private final TokenIndex index;
+        private final float minScore;
+        private final Map<String, String> heuristic = new HashMap<>();
+
+        private Matcher(Map<String, String> overrides, TokenIndex index, float minScore) {
+            this.overrides = overrides;
+            this.rules = BlockStateRules.of(overrides);
+            this.index = index;
+            this.minScore = minScore;
+        }
+
+        /**
+         * Returns the Hytale block for {@code blockState}, or null if it stays unmapped.
+         */
+        public String match(String blockState) {
+            String block = mcBaseId(blockState);
+            if (block.isBlank()) {
+                return null;
+            }
+            String manual = rules.resolve(blockState);
+            if (manual != null || overrides.containsKey(block)) {
+                return manual;
+            }
+            synchronized (heuristic) {
+                String target = heuristic.get(block);
+                if (target == null) {
+                    TokenIndex.Match match = index.bestMatches(List.of(mcTokens(block)), 1)[0];
+                    target = match.score() >= minScore ? match.block() : "";
+                    heuristic.put(block, target);
+                }
+                return target.isEmpty() ? null : target;
+            }
+        }
+    }
+
     public record MapResult(int uniqueMcBlocks, int mappingRows, int unmatchedCount, int hytaleBlockCount) {
     }
 
@@ -36,7 +36,7 @@ public final class BlockOverrides {
                 if (line.isBlank()) {
                     continue;
                 }
-                String[] parts = line.split(",", -1);
+                String[] parts = BlockStateRules.splitRow(line);
                 if (parts.length < 2) {
                     continue;
                 }
@@ -0,0 +1,153 @@
+package dev.chasem.hg.hubconverter.mapping;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapping rules from Minecraft block states to Hytale blocks. A rule key is a block id, optionally followed
+ * by property conditions: {@code minecraft:oak_log} matches every oak log state, while
+ * {@code minecraft:oak_log[axis=x]} only matches states whose {@code axis} is {@code x}. The matching rule with
+ * the most conditions wins, and earlier rules win ties. Conditional rules with a blank target are ignored;
+ * a blank or missing unconditional rule leaves the block unmapped.
+ *
+ * <p>Rule keys contain commas once they have several conditions, so mapping files are split with
+ * {@link #splitRow(String)}, which ignores commas inside brackets.
+ */
+public final class BlockStateRules {
+
+    private final Map<String, List<Rule>> rulesByBlock = new HashMap<>();
+    private final Map<String, String> baseTargets = new HashMap<>();
+
+    private BlockStateRules() {
+    }
+
+    /**
+     * Compiles {@code mapping} (rule key to Hytale block, in file order).
+     */
+    public static BlockStateRules of(Map<String, String> mapping) {
+        BlockStateRules rules = new BlockStateRules();
+        for (Map.Entry<String, String> entry : mapping.entrySet()) {
+            String key = entry.getKey().trim();
+            int bracket = key.indexOf('[');
+            if (bracket < 0) {
+                rules.baseTargets.put(key, entry.getValue());
+                continue;
+            }
+            String target = entry.getValue();
+            if (target == null || target.isBlank()) {
+                continue;
+            }
+            String[] conditions = properties(key, bracket);
+            if (conditions.length == 0) {
+                rules.baseTargets.putIfAbsent(key.substring(0, bracket), target);
+                continue;
+            }
+            rules.rulesByBlock.computeIfAbsent(key.substring(0, bracket), block -> new ArrayList<>())
+                    .add(new Rule(conditions, target));
+        }
+        return rules;
+    }
+
+    /**
+     * Returns the Hytale block for a block state such as {@code minecraft:oak_stairs[facing=east,half=top]}, or
+     * null if it is unmapped. A state cut short after its first properties (as in old CSV exports) only
+     * matches rules whose conditions it still carries.
+     */
+    public String resolve(String blockState) {
+        if (blockState == null) {
+            return null;
+        }
+        String trimmed = blockState.trim();
+        int bracket = trimmed.indexOf('[');
+        String block = bracket < 0 ? trimmed : trimmed.substring(0, bracket);
+        List<Rule> rules = rulesByBlock.get(block);
+        if (rules != null && bracket >= 0) {
+            String[] properties = properties(trimmed, bracket);
+            Rule best = null;
+            for (Rule rule : rules) {
+                if ((best == null || rule.conditions.length > best.conditions.length) && rule.matches(properties)) {
+                    best = rule;
+                }
+            }
+            if (best != null) {
+                return best.target;
+            }
+        }
+        String target = baseTargets.get(block);
+        return target == null || target.isBlank() ? null : target;
+    }
+
+    /**
+     * Whether the mapping has a row for the block of {@code blockState}, even one that leaves it unmapped.
+     */
+    public boolean covers(String blockState) {
+        if (blockState == null) {
+            return false;
+        }
+        String trimmed = blockState.trim();
+        int bracket = trimmed.indexOf('[');
+        return baseTargets.containsKey(bracket < 0 ? trimmed : trimmed.substring(0, bracket));
+    }
+
+    public static boolean hasConditions(String ruleKey) {
+        return ruleKey.indexOf('[') >= 0;
+    }
+
+    /**
+     * Splits a CSV line on commas that are not inside {@code [...]}.
+     */
+    public static String[] splitRow(String line) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '[') {
+                depth++;
+            } else if (c == ']' && depth > 0) {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(line.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(line.substring(start));
+        return parts.toArray(new String[0]);
+    }
+
+    /**
+     * The {@code key=value} pairs between {@code [} at {@code bracket} and the closing {@code ]} (or the end).
+     */
+    private static String[] properties(String state, int bracket) {
+        int end = state.indexOf(']', bracket);
+        String body = state.substring(bracket + 1, end < 0 ? state.length() : end);
+        List<String> pairs = new ArrayList<>();
+        for (String pair : body.split(",")) {
+            String trimmed = pair.trim();
+            if (!trimmed.isEmpty()) {
+                pairs.add(trimmed.replace(" ", ""));
+            }
+        }
+        return pairs.toArray(new String[0]);
+    }
+
+    private record Rule(String[] conditions, String target) {
+        private boolean matches(String[] properties) {
+            for (String condition : conditions) {
+                boolean found = false;
+                for (String property : properties) {
+                    if (property.equals(condition)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dev.chasem.hg.hubconverter.mapping;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Identifies the inputs a {@code block-mapping.csv} was built from, saved next to it as
+ * {@code <mapping file>.fingerprint}. Heuristic rows only depend on the Hytale block list, the minimum score
+ * and the tokenizer rules ({@link #HEURISTIC_VERSION}), so they can be reused while those are unchanged.
+ */
+record MappingFingerprint(String heuristic, String overrides) {
+
+    /**
+     * Bump when tokenizing or scoring changes, so mappings built by older rules are scored again.
+     */
+    static final int HEURISTIC_VERSION = 1;
+
+    private static final String SUFFIX = ".fingerprint";
+
+    static MappingFingerprint compute(List<String> hytaleBlocks, Map<String, String> overrides, float minScore) {
+        List<String> sorted = new ArrayList<>(hytaleBlocks);
+        sorted.sort(null);
+        StringBuilder heuristic = new StringBuilder()
+                .append(HEURISTIC_VERSION).append('\n')
+                .append(Float.floatToIntBits(minScore)).append('\n');
+        for (String block : sorted) {
+            heuristic.append(block).append('\n');
+        }
+        StringBuilder overrideText = new StringBuilder();
+        new TreeMap<>(overrides).forEach((mc, hytale) -> overrideText.append(mc).append(',').append(hytale).append('\n'));
+        return new MappingFingerprint(sha256(heuristic), sha256(overrideText));
+    }
+
+    static Path pathFor(Path mappingFile) {
+        return mappingFile.resolveSibling(mappingFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads a saved fingerprint, or returns null if there is none or it cannot be read.
+     */
+    static MappingFingerprint load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            String heuristic = null;
+            String overrides = null;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int eq = line.indexOf('=');
+                if (eq <= 0) {
+                    continue;
+                }
+                String value = line.substring(eq + 1).trim();
+                switch (line.substring(0, eq).trim()) {
+                    case "heuristic" -> heuristic = value;
+                    case "overrides" -> overrides = value;
+                    default -> {
+                    }
+                }
+            }
+            return heuristic == null || overrides == null ? null : new MappingFingerprint(heuristic, overrides);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    void save(Path file) throws IOException {
+        Files.writeString(file, "heuristic=" + heuristic + "\noverrides=" + overrides + "\n", StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(CharSequence text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
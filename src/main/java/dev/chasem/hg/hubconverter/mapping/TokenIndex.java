@@ -0,0 +1,143 @@
+package dev.chasem.hg.hubconverter.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Inverted index from normalized token to the candidate blocks that contain it. A query is only scored
+ * against candidates sharing at least one token, with the same Dice coefficient as a pairwise comparison of
+ * token sets: {@code 2 * overlap / (|query| + |candidate|)}.
+ *
+ * <p>Candidates are numbered in the iteration order of the map the index is built from. Ties go to the
+ * lowest number, which is the candidate a linear scan keeping the first strictly greater score would pick.
+ */
+final class TokenIndex {
+
+    private final String[] candidates;
+    private final int[] candidateSizes;
+    private final Map<String, Integer> tokenIds = new HashMap<>();
+    private final int[][] postings;
+
+    TokenIndex(Map<String, List<String>> candidateTokens) {
+        candidates = new String[candidateTokens.size()];
+        candidateSizes = new int[candidates.length];
+        List<int[]> lists = new ArrayList<>();
+        int[] listSizes = new int[16];
+        int candidate = 0;
+        for (Map.Entry<String, List<String>> entry : candidateTokens.entrySet()) {
+            candidates[candidate] = entry.getKey();
+            LinkedHashSet<String> tokens = new LinkedHashSet<>(entry.getValue());
+            candidateSizes[candidate] = tokens.size();
+            for (String token : tokens) {
+                int tokenId = tokenIds.computeIfAbsent(token, key -> tokenIds.size());
+                if (tokenId == lists.size()) {
+                    lists.add(new int[4]);
+                    if (tokenId == listSizes.length) {
+                        listSizes = Arrays.copyOf(listSizes, tokenId * 2);
+                    }
+                }
+                int[] list = lists.get(tokenId);
+                if (listSizes[tokenId] == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    lists.set(tokenId, list);
+                }
+                list[listSizes[tokenId]++] = candidate;
+            }
+            candidate++;
+        }
+        postings = new int[lists.size()][];
+        for (int tokenId = 0; tokenId < postings.length; tokenId++) {
+            postings[tokenId] = Arrays.copyOf(lists.get(tokenId), listSizes[tokenId]);
+        }
+    }
+
+    /**
+     * Returns the best candidate for every query, in query order, scoring queries on {@code threads} threads.
+     */
+    Match[] bestMatches(List<List<String>> queries, int threads) {
+        Match[] matches = new Match[queries.size()];
+        int workers = Math.max(1, Math.min(threads, queries.size()));
+        if (workers == 1) {
+            scoreRange(queries, matches, 0, queries.size());
+            return matches;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            int batchSize = (queries.size() + workers - 1) / workers;
+            List<Future<?>> futures = new ArrayList<>();
+            for (int start = 0; start < queries.size(); start += batchSize) {
+                int from = start;
+                int to = Math.min(start + batchSize, queries.size());
+                futures.add(executor.submit(() -> scoreRange(queries, matches, from, to)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Token scoring failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring tokens", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return matches;
+    }
+
+    private void scoreRange(List<List<String>> queries, Match[] matches, int from, int to) {
+        int[] overlap = new int[candidates.length];
+        int[] touched = new int[candidates.length];
+        for (int i = from; i < to; i++) {
+            matches[i] = bestMatch(queries.get(i), overlap, touched);
+        }
+    }
+
+    /**
+     * {@code overlap} must be all zero on entry and is left that way.
+     */
+    private Match bestMatch(List<String> tokens, int[] overlap, int[] touched) {
+        if (tokens.isEmpty()) {
+            return Match.NONE;
+        }
+        LinkedHashSet<String> querySet = new LinkedHashSet<>(tokens);
+        int touchedCount = 0;
+        for (String token : querySet) {
+            Integer tokenId = tokenIds.get(token);
+            if (tokenId == null) {
+                continue;
+            }
+            for (int candidate : postings[tokenId]) {
+                if (overlap[candidate]++ == 0) {
+                    touched[touchedCount++] = candidate;
+                }
+            }
+        }
+
+        float bestScore = 0.0f;
+        int best = -1;
+        int querySize = querySet.size();
+        for (int i = 0; i < touchedCount; i++) {
+            int candidate = touched[i];
+            float score = (2.0f * overlap[candidate]) / (querySize + candidateSizes[candidate]);
+            overlap[candidate] = 0;
+            if (score > bestScore || (score == bestScore && candidate < best)) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best < 0 ? Match.NONE : new Match(candidates[best], bestScore);
+    }
+
+    record Match(String block, float score) {
+        static final Match NONE = new Match("", 0.0f);
+    }
+}
@@ -0,0 +1,236 @@
+package dev.chasem.hg.hubconverter.mca;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Inflates chunk payloads with long-lived {@link Inflater}s into a reusable, growable output buffer. One
+ * instance is owned by a single worker thread; the buffer returned by {@link #decompress} is only valid until
+ * the next call on the same instance.
+ *
+ * <p>Supports the region compression types 1 (GZip), 2 (Zlib), 3 (uncompressed) and 4 (LZ4, as written by
+ * Minecraft 24w04a and later through lz4-java's block stream).
+ */
+final class ChunkDecompressor {
+
+    static final int GZIP = 1;
+    static final int ZLIB = 2;
+    static final int UNCOMPRESSED = 3;
+    static final int LZ4 = 4;
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    // A buffer grown past this by an unusually large chunk is dropped before the next payload.
+    private static final int RETAINED_BUFFER_BYTES = 4 * 1024 * 1024;
+    // Well above any real chunk; stops a corrupt or hostile payload from inflating without bound.
+    private static final int MAX_OUTPUT_BYTES = 64 * 1024 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+
+    private static final byte[] LZ4_MAGIC = {'L', 'Z', '4', 'B', 'l', 'o', 'c', 'k'};
+    private static final int LZ4_HEADER_BYTES = LZ4_MAGIC.length + 13;
+    private static final int LZ4_METHOD_RAW = 0x10;
+    private static final int LZ4_METHOD_LZ4 = 0x20;
+
+    private final Inflater zlib = new Inflater();
+    private final Inflater rawDeflate = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private byte[] output = new byte[INITIAL_BUFFER_BYTES];
+
+    /**
+     * Returns the decompressed payload, or {@code null} for an unsupported compression type. Throws
+     * {@link ZipException} if the payload decompresses to more than {@link #MAX_OUTPUT_BYTES}.
+     */
+    ByteBuffer decompress(int compressionType, ByteBuffer compressed) throws IOException {
+        if (compressionType == UNCOMPRESSED) {
+            return compressed;
+        }
+        if (output.length > RETAINED_BUFFER_BYTES) {
+            output = new byte[INITIAL_BUFFER_BYTES];
+        }
+        int length = switch (compressionType) {
+            case GZIP -> gunzip(compressed.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+            case ZLIB -> inflate(zlib, compressed.duplicate());
+            case LZ4 -> unLz4(compressed.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+            default -> -1;
+        };
+        // The output buffer may have been replaced while growing, so wrap it only after decoding.
+        return length < 0 ? null : ByteBuffer.wrap(output, 0, length);
+    }
+
+    private int inflate(Inflater inflater, ByteBuffer input) throws IOException {
+        inflater.reset();
+        inflater.setInput(input);
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == output.length) {
+                    ensureCapacity(length + 1L);
+                }
+                int inflated = inflater.inflate(output, length, output.length - length);
+                if (inflated == 0) {
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("Deflate stream requires a preset dictionary");
+                    }
+                    if (inflater.needsInput()) {
+                        throw new EOFException("Unexpected end of deflate stream");
+                    }
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        // Leave the input positioned after the deflate data so callers can read any trailer.
+        input.position(input.limit() - inflater.getRemaining());
+        return length;
+    }
+
+    private int gunzip(ByteBuffer input) throws IOException {
+        if (input.remaining() < 18 || (input.getShort() & 0xFFFF) != GZIP_MAGIC || input.get() != 8) {
+            throw new ZipException("Not in GZIP format");
+        }
+        int flags = input.get() & 0xFF;
+        input.position(input.position() + 6); // mtime, xfl, os
+        if ((flags & GZIP_FEXTRA) != 0) {
+            int extraLength = input.getShort() & 0xFFFF;
+            input.position(input.position() + extraLength);
+        }
+        if ((flags & GZIP_FNAME) != 0) {
+            skipZeroTerminated(input);
+        }
+        if ((flags & GZIP_FCOMMENT) != 0) {
+            skipZeroTerminated(input);
+        }
+        if ((flags & GZIP_FHCRC) != 0) {
+            input.position(input.position() + 2);
+        }
+
+        int length = inflate(rawDeflate, input);
+        if (input.remaining() < 8) {
+            throw new EOFException("Unexpected end of GZIP trailer");
+        }
+        crc.reset();
+        crc.update(output, 0, length);
+        if (input.getInt() != (int) crc.getValue() || input.getInt() != length) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        return length;
+    }
+
+    private void skipZeroTerminated(ByteBuffer input) {
+        while (input.get() != 0) {
+            // skip
+        }
+    }
+
+    private int unLz4(ByteBuffer input) throws IOException {
+        int length = 0;
+        while (input.remaining() >= LZ4_HEADER_BYTES) {
+            for (byte magic : LZ4_MAGIC) {
+                if (input.get() != magic) {
+                    throw new ZipException("Not in LZ4 block stream format");
+                }
+            }
+            int method = input.get() & 0xF0;
+            int compressedLength = input.getInt();
+            int originalLength = input.getInt();
+            input.getInt(); // xxhash32 checksum of the block, not verified
+            if (compressedLength < 0 || originalLength < 0 || compressedLength > input.remaining()) {
+                throw new ZipException("Corrupt LZ4 block header");
+            }
+            if (originalLength == 0) {
+                break;
+            }
+            ensureCapacity((long) length + originalLength);
+            if (method == LZ4_METHOD_RAW) {
+                if (compressedLength != originalLength) {
+                    throw new ZipException("Corrupt LZ4 raw block");
+                }
+                input.get(output, length, originalLength);
+            } else if (method == LZ4_METHOD_LZ4) {
+                ByteBuffer block = input.slice(input.position(), compressedLength);
+                input.position(input.position() + compressedLength);
+                decodeLz4Block(block, length, originalLength);
+            } else {
+                throw new ZipException("Unsupported LZ4 block method: " + method);
+            }
+            length += originalLength;
+        }
+        return length;
+    }
+
+    private void decodeLz4Block(ByteBuffer block, int start, int originalLength) throws IOException {
+        int end = start + originalLength;
+        int out = start;
+        while (true) {
+            int token = block.get() & 0xFF;
+            int literals = readLz4Length(block, token >>> 4);
+            if (literals > end - out || literals > block.remaining()) {
+                throw new ZipException("Corrupt LZ4 literal run");
+            }
+            block.get(output, out, literals);
+            out += literals;
+            if (!block.hasRemaining()) {
+                break;
+            }
+
+            int offset = (block.get() & 0xFF) | ((block.get() & 0xFF) << 8);
+            int matchLength = readLz4Length(block, token & 0x0F) + 4;
+            if (offset == 0 || offset > out - start || matchLength > end - out) {
+                throw new ZipException("Corrupt LZ4 match");
+            }
+            int from = out - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(output, from, output, out, matchLength);
+                out += matchLength;
+            } else {
+                for (int i = 0; i < matchLength; i++) {
+                    output[out++] = output[from++];
+                }
+            }
+        }
+        if (out != end) {
+            throw new ZipException("LZ4 block decoded to " + (out - start) + " bytes, expected " + originalLength);
+        }
+    }
+
+    private int readLz4Length(ByteBuffer block, int length) {
+        if (length == 15) {
+            int next;
+            do {
+                next = block.get() & 0xFF;
+                length += next;
+            } while (next == 255);
+        }
+        return length;
+    }
+
+    private void ensureCapacity(long capacity) throws ZipException {
+        if (capacity > MAX_OUTPUT_BYTES) {
+            throw new ZipException("Chunk decompresses to more than " + MAX_OUTPUT_BYTES + " bytes");
+        }
+        if (capacity > output.length) {
+            long grown = Math.max(capacity, output.length * 2L);
+            output = Arrays.copyOf(output, (int) Math.min(grown, MAX_OUTPUT_BYTES));
+        }
+    }
+
+    /**
+     * Releases the native memory of the {@link Inflater}s; the instance must not be used afterwards.
+     */
+    void end() {
+        zlib.end();
+        rawDeflate.end();
+    }
+}
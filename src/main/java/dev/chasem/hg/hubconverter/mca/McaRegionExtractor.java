@@ -1,30 +1,77 @@
 package dev.chasem.hg.hubconverter.mca;
 
 import com.hypixel.hytale.logger.HytaleLogger;
+import dev.chasem.hg.hubconverter.io.BlockChunkEncoder;
+import dev.chasem.hg.hubconverter.io.BlockHistogram;
+import dev.chasem.hg.hubconverter.io.BlockRegionCsv;
+import dev.chasem.hg.hubconverter.io.BlockRegionFormat;
+import dev.chasem.hg.hubconverter.io.BlockRegionWriter;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
 
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.RandomAccessFile;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class McaRegionExtractor {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_BYTES = McaRegionFile.SECTOR_BYTES;
     private static final int VERSION_20W17A = 2529;
+    private static final int MAX_CHUNKS_IN_FLIGHT = 64;
+    // Set on first use and ended by releaseDecompressor(), so the Inflaters' native memory goes with the pools.
+    private static final ThreadLocal<ChunkDecompressor> DECOMPRESSORS = new ThreadLocal<>();
+    private static final ThreadFactory THREADS = Executors.defaultThreadFactory();
+    private static final ThreadLocal<int[]> SECTION_PALETTE_IDS =
+            ThreadLocal.withInitial(() -> new int[PaletteUnpacker.SECTION_BLOCKS]);
+    private static final ThreadLocal<BlockChunkEncoder> ENCODERS = ThreadLocal.withInitial(BlockChunkEncoder::new);
+    private static final ThreadLocal<LegacyPalette> LEGACY_PALETTES = ThreadLocal.withInitial(LegacyPalette::new);
+
+    // Only the tags writeSections reads are materialized; entities, block entities, heightmaps, biomes and
+    // the rest of the chunk are skipped by length while parsing.
+    private static final NbtFilter PALETTE_ENTRY_FILTER = NbtFilter.keys("Name", "Properties");
+    private static final NbtFilter SECTION_FILTER = NbtFilter
+            .keys("Y", "y", "Blocks", "Data", "Add", "BlockStates", "data")
+            .with("block_states", NbtFilter.keys("data").with("palette", PALETTE_ENTRY_FILTER))
+            .with("Palette", PALETTE_ENTRY_FILTER)
+            .with("palette", PALETTE_ENTRY_FILTER);
+    private static final NbtFilter LEVEL_FILTER = NbtFilter.keys("xPos", "zPos")
+            .with("Sections", SECTION_FILTER)
+            .with("sections", SECTION_FILTER);
+    private static final NbtFilter CHUNK_FILTER = LEVEL_FILTER
+            .with("DataVersion", NbtFilter.ALL)
+            .with("Level", LEVEL_FILTER);
+
+    private final BlockStateDictionary dictionary;
+    private final int airStateId;
+    private final PaletteEntryCache paletteCache;
+
+    public McaRegionExtractor(BlockStateDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.airStateId = dictionary.idOf("minecraft:air");
+        this.paletteCache = new PaletteEntryCache(dictionary, PaletteEntryCache.DEFAULT_MAX_ENTRIES);
+    }
 
     public ExtractSummary extractAll(Path mcaDir, Path outputDir, ExtractOptions options) {
+        return extractAll(mcaDir, outputDir, options, regionFile -> {
+        });
+    }
+
+    /**
+     * Same as {@link #extractAll(Path, Path, ExtractOptions)}, telling {@code listener} about each region file
+     * as soon as it is complete so later stages can start on it.
+     */
+    public ExtractSummary extractAll(Path mcaDir, Path outputDir, ExtractOptions options, RegionListener listener) {
         List<Path> mcaFiles = listMcaFiles(mcaDir);
         if (mcaFiles.isEmpty()) {
             return new ExtractSummary(0, 0, 0, 0);
@@ -36,21 +83,161 @@ public class McaRegionExtractor {
             LOGGER.atWarning().log("[HytalesHub] Failed to create output dir %s: %s", outputDir, e.getMessage());
         }
 
+        BlockHistogram histogram = new BlockHistogram();
+        ExtractSummary summary = readAll(mcaFiles, options, (mcaFile, chunkPool) -> {
+            Path outputPath = outputPathFor(mcaFile, outputDir);
+            ExtractSummary result = extractRegion(mcaFile, outputPath, options, chunkPool, histogram);
+            if (result.totalFiles() > 0) {
+                listener.regionExtracted(outputPath);
+            }
+            return result;
+        });
+
+        Path histogramFile = outputDir.resolve(BlockRegionFormat.MERGED_HISTOGRAM);
+        try {
+            histogram.write(histogramFile, dictionary);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to write %s: %s", histogramFile, e.getMessage());
+        }
+
+        LOGGER.atInfo().log("[HytalesHub] Palette entry cache: hits=%d misses=%d entries=%d",
+                paletteCache.hits(), paletteCache.misses(), paletteCache.size());
+        return summary;
+    }
+
+    /**
+     * Decodes every region in {@code mcaDir} and hands its chunks to the sink {@code sinks} opens for it,
+     * instead of writing region files. Chunks reach a sink in the same order extract writes them.
+     */
+    public ExtractSummary streamAll(Path mcaDir, ExtractOptions options, RegionSink sinks) {
+        List<Path> mcaFiles = listMcaFiles(mcaDir);
+        if (mcaFiles.isEmpty()) {
+            return new ExtractSummary(0, 0, 0, 0);
+        }
+        return readAll(mcaFiles, options, (mcaFile, chunkPool) -> readRegion(mcaFile, options, chunkPool, sinks));
+    }
+
+    /**
+     * Runs {@code task} for every region, {@link ExtractOptions#threads} regions at a time, sharing one chunk
+     * decoding pool between them.
+     */
+    private ExtractSummary readAll(List<Path> mcaFiles, ExtractOptions options, RegionTask task) {
+        int threads = resolveThreads(options.threads(), mcaFiles.size());
+        int chunkThreads = options.chunkThreads() > 0
+                ? options.chunkThreads()
+                : Runtime.getRuntime().availableProcessors();
+        ExecutorService chunkPool = chunkThreads > 1
+                ? Executors.newFixedThreadPool(chunkThreads, McaRegionExtractor::newWorker)
+                : null;
+        List<ExtractSummary> results;
+        try {
+            results = threads <= 1
+                    ? readSequential(mcaFiles, task, chunkPool)
+                    : readParallel(mcaFiles, task, threads, chunkPool);
+        } finally {
+            if (chunkPool != null) {
+                chunkPool.shutdownNow();
+            }
+            releaseDecompressor();
+        }
+
         long totalChunks = 0;
         long totalBlocks = 0;
         int totalErrors = 0;
 
-        for (Path mcaFile : mcaFiles) {
-            Path outputPath = outputDir.resolve(mcaFile.getFileName().toString().replace(".mca", ".csv"));
-            ExtractSummary result = extractRegion(mcaFile, outputPath, options);
+        for (ExtractSummary result : results) {
             totalChunks += result.totalChunks();
             totalBlocks += result.totalBlocks();
             totalErrors += result.totalErrors();
         }
-
         return new ExtractSummary(mcaFiles.size(), totalChunks, totalBlocks, totalErrors);
     }
 
+    private List<ExtractSummary> readSequential(List<Path> mcaFiles, RegionTask task, ExecutorService chunkPool) {
+        List<ExtractSummary> results = new ArrayList<>(mcaFiles.size());
+        for (Path mcaFile : mcaFiles) {
+            results.add(task.run(mcaFile, chunkPool));
+        }
+        return results;
+    }
+
+    private List<ExtractSummary> readParallel(List<Path> mcaFiles,
+                                              RegionTask task,
+                                              int threads,
+                                              ExecutorService chunkPool) {
+        LOGGER.atInfo().log("[HytalesHub] Extracting %d regions with %d threads", mcaFiles.size(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, McaRegionExtractor::newWorker);
+        List<Future<ExtractSummary>> futures = new ArrayList<>(mcaFiles.size());
+        for (Path mcaFile : mcaFiles) {
+            futures.add(executor.submit(() -> task.run(mcaFile, chunkPool)));
+        }
+        executor.shutdown();
+
+        // Each region writes its own output file, so merging the summaries in file order keeps the
+        // totals identical to a sequential run regardless of which worker finished first.
+        List<ExtractSummary> results = new ArrayList<>(mcaFiles.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                LOGGER.atWarning().log("[HytalesHub] Failed to extract %s: %s",
+                        mcaFiles.get(i).getFileName(), cause.getMessage());
+                results.add(new ExtractSummary(0, 0, 0, 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                results.add(new ExtractSummary(0, 0, 0, 1));
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A pool thread that ends its decompressor once the pool shuts it down.
+     */
+    private static Thread newWorker(Runnable worker) {
+        return THREADS.newThread(() -> {
+            try {
+                worker.run();
+            } finally {
+                releaseDecompressor();
+            }
+        });
+    }
+
+    private static ChunkDecompressor decompressor() {
+        ChunkDecompressor decompressor = DECOMPRESSORS.get();
+        if (decompressor == null) {
+            decompressor = new ChunkDecompressor();
+            DECOMPRESSORS.set(decompressor);
+        }
+        return decompressor;
+    }
+
+    private static void releaseDecompressor() {
+        ChunkDecompressor decompressor = DECOMPRESSORS.get();
+        if (decompressor != null) {
+            DECOMPRESSORS.remove();
+            decompressor.end();
+        }
+    }
+
+    private Path outputPathFor(Path mcaFile, Path outputDir) {
+        return outputDir.resolve(mcaFile.getFileName().toString().replace(".mca", BlockRegionFormat.EXTENSION));
+    }
+
+    private Path csvPathFor(Path outputPath) {
+        return outputPath.resolveSibling(outputPath.getFileName().toString()
+                .replace(BlockRegionFormat.EXTENSION, ".csv"));
+    }
+
+    private int resolveThreads(int configured, int fileCount) {
+        int threads = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(threads, fileCount));
+    }
+
     private List<Path> listMcaFiles(Path dir) {
         if (dir == null || !Files.exists(dir)) {
             return List.of();
@@ -69,119 +256,179 @@ public class McaRegionExtractor {
         }
     }
 
-    private ExtractSummary extractRegion(Path mcaFile, Path outputPath, ExtractOptions options) {
+    /**
+     * Extracts one region and adds the blocks it wrote to {@code merged}, also saving them as the region's
+     * own histogram.
+     */
+    private ExtractSummary extractRegion(Path mcaFile,
+                                         Path outputPath,
+                                         ExtractOptions options,
+                                         ExecutorService chunkPool,
+                                         BlockHistogram merged) {
+        return readRegion(mcaFile, options, chunkPool, (file, chunkCount) -> {
+            BlockRegionWriter writer = BlockRegionWriter.create(outputPath, 0);
+            try {
+                BlockRegionCsv csv = options.exportCsv()
+                        ? BlockRegionCsv.create(csvPathFor(outputPath), "block", dictionary)
+                        : null;
+                return new RegionOutput(outputPath, writer, csv, merged);
+            } catch (IOException | RuntimeException e) {
+                writer.close();
+                throw e;
+            }
+        });
+    }
+
+    private ExtractSummary readRegion(Path mcaFile,
+                                      ExtractOptions options,
+                                      ExecutorService chunkPool,
+                                      RegionSink sinks) {
         long totalChunks = 0;
         long totalBlocks = 0;
         int errors = 0;
 
-        try (RandomAccessFile raf = new RandomAccessFile(mcaFile.toFile(), "r");
-             BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
-            long fileLength = raf.length();
-            if (fileLength < SECTOR_BYTES * 2L) {
+        try (McaRegionFile region = McaRegionFile.open(mcaFile)) {
+            if (region.length() < SECTOR_BYTES * 2L) {
                 LOGGER.atWarning().log("[HytalesHub] MCA file too small: %s", mcaFile.getFileName());
                 return new ExtractSummary(0, 0, 0, 1);
             }
+            if (options.sectorOrder()) {
+                region.prefetchInSectorOrder();
+            }
 
-            byte[] locations = new byte[SECTOR_BYTES];
-            raf.readFully(locations);
-            raf.skipBytes(SECTOR_BYTES); // timestamps
-
-            writer.write("x,y,z,block");
-            writer.newLine();
-
-            for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
-                for (int chunkX = 0; chunkX < 32; chunkX++) {
-                    int offset = 4 * (chunkX + chunkZ * 32);
-                    int sectorOffset = ((locations[offset] & 0xFF) << 16)
-                            | ((locations[offset + 1] & 0xFF) << 8)
-                            | (locations[offset + 2] & 0xFF);
-                    int sectorCount = locations[offset + 3] & 0xFF;
-                    if (sectorOffset == 0 || sectorCount == 0) {
-                        continue;
-                    }
-
-                    long chunkStart = (long) sectorOffset * SECTOR_BYTES;
-                    if (chunkStart + 5 > fileLength) {
-                        errors++;
-                        continue;
-                    }
-
-                    raf.seek(chunkStart);
-                    int length = raf.readInt();
-                    if (length <= 1 || length > sectorCount * SECTOR_BYTES) {
-                        errors++;
-                        continue;
-                    }
-
-                    int compressionType = raf.readUnsignedByte();
-                    byte[] compressed = new byte[length - 1];
-                    raf.readFully(compressed);
+            try (ChunkSink output = sinks.open(mcaFile, region.slotsInSectorOrder().length)) {
+                // Stage 1 (this thread) slices compressed payloads out of the mapping in z/x order, stage 2
+                // (chunkPool) inflates, decodes and encodes them, stage 3 (this thread again) drains the
+                // futures in submission order so chunks land in the file in the same order as the serial loop.
+                ArrayDeque<Future<ChunkOutcome>> pending = new ArrayDeque<>();
 
-                    try (InputStream decompressed = decompress(compressionType, compressed)) {
-                        if (decompressed == null) {
-                            errors++;
+                for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
+                    for (int chunkX = 0; chunkX < 32; chunkX++) {
+                        McaRegionFile.ChunkPayload payload = region.chunk(chunkX, chunkZ);
+                        if (payload == null) {
                             continue;
                         }
-                        NbtTag rootTag = NbtReader.read(decompressed);
-                        Map<String, NbtTag> root = NbtUtil.asCompound(rootTag);
-                        if (root == null) {
+                        if (payload == McaRegionFile.ChunkPayload.INVALID) {
                             errors++;
                             continue;
                         }
-                        int dataVersion = getDataVersion(root);
-                        boolean stretches = dataVersion < VERSION_20W17A;
-
-                        Map<String, NbtTag> level = NbtUtil.getCompound(root, "Level");
-                        if (level == null) {
-                            level = root;
-                        }
-
-                        List<NbtTag> sections = NbtUtil.getList(level, "Sections");
-                        if (sections == null) {
-                            sections = NbtUtil.getList(level, "sections");
+                        RawChunk raw = new RawChunk(chunkX, chunkZ, payload.compressionType(), payload.data());
+
+                        ChunkOutcome outcome;
+                        if (chunkPool == null) {
+                            outcome = decodeChunk(raw, mcaFile, options);
+                            deliver(outcome, output);
+                        } else {
+                            pending.add(chunkPool.submit(() -> decodeChunk(raw, mcaFile, options)));
+                            if (pending.size() < MAX_CHUNKS_IN_FLIGHT) {
+                                continue;
+                            }
+                            outcome = awaitChunk(pending.poll(), output);
                         }
-                        if (sections == null) {
-                            continue;
-                        }
-
-                        Integer chunkXPos = NbtUtil.getInt(level, "xPos");
-                        Integer chunkZPos = NbtUtil.getInt(level, "zPos");
-                        int chunkXCoord = chunkXPos != null ? chunkXPos : chunkX;
-                        int chunkZCoord = chunkZPos != null ? chunkZPos : chunkZ;
-                        int baseX = chunkXCoord * 16;
-                        int baseZ = chunkZCoord * 16;
-
-                        totalChunks++;
-                        totalBlocks += writeSections(writer, sections, baseX, baseZ, stretches, options);
-                    } catch (Exception e) {
-                        errors++;
-                        LOGGER.atWarning().log("[HytalesHub] Failed to read chunk (%d,%d) in %s: %s",
-                                chunkX, chunkZ, mcaFile.getFileName(), e.getMessage());
+                        totalChunks += outcome.counted ? 1 : 0;
+                        totalBlocks += outcome.blocks;
+                        errors += outcome.failed ? 1 : 0;
                     }
                 }
+
+                while (!pending.isEmpty()) {
+                    ChunkOutcome outcome = awaitChunk(pending.poll(), output);
+                    totalChunks += outcome.counted ? 1 : 0;
+                    totalBlocks += outcome.blocks;
+                    errors += outcome.failed ? 1 : 0;
+                }
             }
         } catch (IOException e) {
             LOGGER.atWarning().log("[HytalesHub] Failed to read %s: %s", mcaFile.getFileName(), e.getMessage());
             return new ExtractSummary(0, 0, 0, 1);
         }
 
-        LOGGER.atInfo().log("[HytalesHub] Extracted %s: chunks=%d blocks=%d", outputPath.getFileName(), totalChunks, totalBlocks);
+        LOGGER.atInfo().log("[HytalesHub] Extracted %s: chunks=%d blocks=%d", mcaFile.getFileName(), totalChunks, totalBlocks);
         return new ExtractSummary(1, totalChunks, totalBlocks, errors);
     }
 
-    private int getDataVersion(Map<String, NbtTag> root) {
-        Integer dataVersion = NbtUtil.getInt(root, "DataVersion");
-        return dataVersion != null ? dataVersion : 0;
+    private void saveHistogram(Path outputPath, BlockHistogram histogram, BlockHistogram merged) {
+        merged.merge(histogram);
+        Path histogramFile = BlockRegionFormat.histogramPathFor(outputPath);
+        try {
+            histogram.write(histogramFile, dictionary);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to write %s: %s", histogramFile.getFileName(), e.getMessage());
+        }
+    }
+
+    private ChunkOutcome awaitChunk(Future<ChunkOutcome> future, ChunkSink output) throws IOException {
+        ChunkOutcome outcome;
+        try {
+            outcome = future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for chunk decode", e);
+        }
+        deliver(outcome, output);
+        return outcome;
     }
 
-    private long writeSections(BufferedWriter writer,
-                               List<NbtTag> sections,
-                               int baseX,
-                               int baseZ,
-                               boolean stretches,
-                               ExtractOptions options) throws IOException {
-        long written = 0;
+    private void deliver(ChunkOutcome outcome, ChunkSink output) throws IOException {
+        if (outcome.chunk != null) {
+            output.write(outcome.chunkX, outcome.chunkZ, outcome.chunk, outcome.histogram);
+        }
+    }
+
+    private ChunkOutcome decodeChunk(RawChunk raw, Path mcaFile, ExtractOptions options) {
+        try {
+            ByteBuffer decompressed = decompressor().decompress(raw.compressionType, raw.compressed);
+            if (decompressed == null) {
+                return ChunkOutcome.FAILED;
+            }
+            NbtTag rootTag = NbtReader.read(decompressed, CHUNK_FILTER);
+            Map<String, NbtTag> root = NbtUtil.asCompound(rootTag);
+            if (root == null) {
+                return ChunkOutcome.FAILED;
+            }
+            int dataVersion = getDataVersion(root);
+            boolean stretches = dataVersion < VERSION_20W17A;
+
+            Map<String, NbtTag> level = NbtUtil.getCompound(root, "Level");
+            if (level == null) {
+                level = root;
+            }
 
+            List<NbtTag> sections = NbtUtil.getList(level, "Sections");
+            if (sections == null) {
+                sections = NbtUtil.getList(level, "sections");
+            }
+            if (sections == null) {
+                return ChunkOutcome.SKIPPED;
+            }
+
+            int chunkXCoord = NbtUtil.getInt(level, "xPos", raw.chunkX);
+            int chunkZCoord = NbtUtil.getInt(level, "zPos", raw.chunkZ);
+
+            BlockChunkEncoder encoder = ENCODERS.get();
+            encoder.begin(chunkXCoord, chunkZCoord);
+            encodeSections(encoder, sections, stretches, options);
+            byte[] chunk = encoder.sectionCount() > 0 ? encoder.finish() : null;
+            return new ChunkOutcome(true, encoder.blocks(), false, chunkXCoord, chunkZCoord, chunk,
+                    chunk != null ? encoder.histogram() : null);
+        } catch (Exception e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to read chunk (%d,%d) in %s: %s",
+                    raw.chunkX, raw.chunkZ, mcaFile.getFileName(), e.getMessage());
+            return ChunkOutcome.FAILED;
+        }
+    }
+
+    private int getDataVersion(Map<String, NbtTag> root) {
+        return NbtUtil.getInt(root, "DataVersion", 0);
+    }
+
+    private void encodeSections(BlockChunkEncoder encoder,
+                                List<NbtTag> sections,
+                                boolean stretches,
+                                ExtractOptions options) throws IOException {
         for (NbtTag sectionTag : sections) {
             Map<String, NbtTag> section = NbtUtil.asCompound(sectionTag);
             if (section == null) {
@@ -199,6 +446,8 @@ public class McaRegionExtractor {
             if (worldYBase > options.yMax() || worldYBase + 15 < options.yMin()) {
                 continue;
             }
+            int lyMin = Math.max(0, options.yMin() - worldYBase);
+            int lyMax = Math.min(15, options.yMax() - worldYBase);
 
             byte[] blocks = NbtUtil.asByteArray(NbtUtil.getTag(section, "Blocks"));
             if (blocks != null) {
@@ -207,7 +456,7 @@ public class McaRegionExtractor {
                 if (data == null) {
                     continue;
                 }
-                written += writeLegacyBlocks(writer, blocks, data, add, baseX, baseZ, worldYBase, options);
+                encodeLegacyBlocks(encoder, sectionY, lyMin, lyMax, blocks, data, add, options);
                 continue;
             }
 
@@ -215,82 +464,73 @@ public class McaRegionExtractor {
             if (paletteData.palette == null || paletteData.palette.isEmpty()) {
                 continue;
             }
-            List<String> paletteStrings = formatPalette(paletteData.palette);
+            int[] stateIds = paletteStateIds(paletteData.palette);
+            int paletteSize = stateIds.length;
             long[] states = paletteData.states;
-            int bits = 0;
-            if (states != null) {
-                bits = Math.max(Integer.SIZE - Integer.numberOfLeadingZeros(paletteStrings.size() - 1), 4);
+            if (options.skipAir() && isAllAir(stateIds)) {
+                continue;
             }
-
-            for (int index = 0; index < 4096; index++) {
-                int paletteId;
-                if (states == null) {
-                    paletteId = 0;
-                } else {
-                    paletteId = decodePaletteId(states, index, bits, stretches);
-                    if (paletteId < 0 || paletteId >= paletteStrings.size()) {
-                        continue;
-                    }
-                }
-
-                String blockStr = paletteStrings.get(paletteId);
-                if (options.skipAir() && "minecraft:air".equals(blockStr)) {
+            // Without a data array every block is palette entry 0, and a one-entry palette cannot index
+            // anything else, so the section is a single block type.
+            if (states == null || paletteSize == 1) {
+                if (options.skipAir() && stateIds[0] == airStateId) {
                     continue;
                 }
+                encoder.addUniformSection(sectionY, lyMin, lyMax, stateIds[0]);
+                continue;
+            }
 
-                int ly = index >> 8;
-                int lz = (index >> 4) & 15;
-                int lx = index & 15;
-                int y = worldYBase + ly;
-                if (y < options.yMin() || y > options.yMax()) {
-                    continue;
-                }
-                int x = baseX + lx;
-                int z = baseZ + lz;
-                writer.write(x + "," + y + "," + z + "," + blockStr);
-                writer.newLine();
-                written++;
+            int bits = Math.max(Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1), 4);
+            int[] paletteIds = SECTION_PALETTE_IDS.get();
+            PaletteUnpacker.unpack(states, bits, stretches, paletteIds);
+
+            // Shift to the region format's 1-based indices; air (when skipped) and ids past the end of the
+            // palette become 0, "no block".
+            int[] remap = new int[paletteSize];
+            for (int i = 0; i < paletteSize; i++) {
+                remap[i] = options.skipAir() && stateIds[i] == airStateId ? 0 : i + 1;
             }
+            for (int index = 0; index < PaletteUnpacker.SECTION_BLOCKS; index++) {
+                int paletteId = paletteIds[index];
+                paletteIds[index] = paletteId < paletteSize ? remap[paletteId] : 0;
+            }
+            encoder.addSection(sectionY, lyMin, lyMax, stateIds, paletteSize, paletteIds);
         }
+    }
 
-        return written;
+    private boolean isAllAir(int[] stateIds) {
+        for (int stateId : stateIds) {
+            if (stateId != airStateId) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private long writeLegacyBlocks(BufferedWriter writer,
-                                   byte[] blocks,
-                                   byte[] data,
-                                   byte[] add,
-                                   int baseX,
-                                   int baseZ,
-                                   int worldYBase,
-                                   ExtractOptions options) throws IOException {
-        long written = 0;
-        for (int index = 0; index < 4096; index++) {
+    private void encodeLegacyBlocks(BlockChunkEncoder encoder,
+                                    int sectionY,
+                                    int lyMin,
+                                    int lyMax,
+                                    byte[] blocks,
+                                    byte[] data,
+                                    byte[] add,
+                                    ExtractOptions options) throws IOException {
+        LegacyPalette palette = LEGACY_PALETTES.get();
+        palette.clear();
+        int[] paletteIds = SECTION_PALETTE_IDS.get();
+        for (int index = 0; index < PaletteUnpacker.SECTION_BLOCKS; index++) {
             int blockId = index < blocks.length ? blocks[index] & 0xFF : 0;
             if (add != null && (index / 2) < add.length) {
                 blockId += (nibble(add, index) << 8);
             }
             int blockData = (index / 2) < data.length ? nibble(data, index) : 0;
             if (options.skipAir() && blockId == 0 && blockData == 0) {
+                paletteIds[index] = 0;
                 continue;
             }
-
-            int ly = index >> 8;
-            int lz = (index >> 4) & 15;
-            int lx = index & 15;
-            int y = worldYBase + ly;
-            if (y < options.yMin() || y > options.yMax()) {
-                continue;
-            }
-
-            int x = baseX + lx;
-            int z = baseZ + lz;
-            String blockStr = "legacy:" + blockId + ":" + blockData;
-            writer.write(x + "," + y + "," + z + "," + blockStr);
-            writer.newLine();
-            written++;
+            paletteIds[index] = palette.indexOf(blockId, blockData, dictionary);
         }
-        return written;
+        encoder.addSection(sectionY, lyMin, lyMax, palette.stateIds, palette.size, paletteIds);
     }
 
     private PaletteAndStates extractPaletteAndStates(Map<String, NbtTag> section) {
@@ -313,98 +553,153 @@ public class McaRegionExtractor {
         return new PaletteAndStates(palette, states);
     }
 
-    private List<String> formatPalette(List<NbtTag> palette) {
-        List<String> result = new ArrayList<>(palette.size());
-        for (NbtTag entry : palette) {
-            Map<String, NbtTag> compound = NbtUtil.asCompound(entry);
-            if (compound == null) {
-                result.add("minecraft:air");
-                continue;
-            }
-            String name = NbtUtil.getString(compound, "Name");
-            if (name == null || name.isBlank()) {
-                result.add("minecraft:air");
-                continue;
-            }
-            Map<String, NbtTag> props = NbtUtil.getCompound(compound, "Properties");
-            if (props == null || props.isEmpty()) {
-                result.add(name);
-                continue;
+    private int[] paletteStateIds(List<NbtTag> palette) {
+        int[] stateIds = new int[palette.size()];
+        for (int i = 0; i < stateIds.length; i++) {
+            stateIds[i] = paletteCache.stateId(palette.get(i));
+        }
+        return stateIds;
+    }
+
+    private int nibble(byte[] data, int index) {
+        int value = data[index / 2] & 0xFF;
+        if (index % 2 == 0) {
+            return value & 0x0F;
+        }
+        return (value >> 4) & 0x0F;
+    }
+
+    private record RawChunk(int chunkX, int chunkZ, int compressionType, ByteBuffer compressed) {
+    }
+
+    private record ChunkOutcome(boolean counted,
+                                long blocks,
+                                boolean failed,
+                                int chunkX,
+                                int chunkZ,
+                                byte[] chunk,
+                                long[] histogram) {
+        private static final ChunkOutcome SKIPPED = new ChunkOutcome(false, 0, false, 0, 0, null, null);
+        private static final ChunkOutcome FAILED = new ChunkOutcome(false, 0, true, 0, 0, null, null);
+    }
+
+    /**
+     * Where extract puts encoded chunks: the binary region file and its block histogram, plus the CSV export
+     * when enabled. Closing it saves the new dictionary ids before the region file is completed, then the
+     * histogram, whatever reached the region file.
+     */
+    private final class RegionOutput implements ChunkSink {
+        private final Path outputPath;
+        private final BlockRegionWriter writer;
+        private final BlockRegionCsv csv;
+        private final BlockHistogram histogram = new BlockHistogram();
+        private final BlockHistogram merged;
+
+        private RegionOutput(Path outputPath, BlockRegionWriter writer, BlockRegionCsv csv, BlockHistogram merged) {
+            this.outputPath = outputPath;
+            this.writer = writer;
+            this.csv = csv;
+            this.merged = merged;
+        }
+
+        @Override
+        public void write(int chunkX, int chunkZ, byte[] chunk, long[] blockCounts) throws IOException {
+            writer.writeChunk(chunkX, chunkZ, chunk);
+            histogram.addEntries(blockCounts);
+            if (csv != null) {
+                csv.writeChunk(ByteBuffer.wrap(chunk), 0);
             }
-            StringBuilder sb = new StringBuilder();
-            sb.append(name).append('[');
-            Map<String, String> sortedProps = new TreeMap<>();
-            for (Map.Entry<String, NbtTag> prop : props.entrySet()) {
-                String value = NbtUtil.asString(prop.getValue());
-                if (value != null) {
-                    sortedProps.put(prop.getKey(), value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (csv != null) {
+                    csv.close();
                 }
-            }
-            boolean first = true;
-            for (Map.Entry<String, String> prop : sortedProps.entrySet()) {
-                if (!first) {
-                    sb.append(',');
+            } finally {
+                try {
+                    // Closing writes the header that makes the file readable, so its ids must be on disk first.
+                    dictionary.save();
+                    writer.close();
+                } finally {
+                    saveHistogram(outputPath, histogram, merged);
                 }
-                first = false;
-                sb.append(prop.getKey()).append('=').append(prop.getValue());
             }
-            sb.append(']');
-            result.add(sb.toString());
         }
-        return result;
     }
 
-    private int decodePaletteId(long[] states, int index, int bits, boolean stretches) {
-        if (states.length == 0 || bits <= 0) {
-            return 0;
-        }
-        int state;
-        int shift;
-        if (stretches) {
-            state = (index * bits) / 64;
-            shift = (index * bits) % 64;
-        } else {
-            int valuesPerLong = 64 / bits;
-            state = index / valuesPerLong;
-            shift = (index % valuesPerLong) * bits;
+    /**
+     * Per-section palette of {@code legacy:id:data} state ids, indexed by {@code id << 4 | data}.
+     */
+    private static final class LegacyPalette {
+        private final int[] indexByKey = new int[4096 << 4];
+        private final int[] keys = new int[PaletteUnpacker.SECTION_BLOCKS];
+        private final int[] stateIds = new int[PaletteUnpacker.SECTION_BLOCKS];
+        private int size;
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                indexByKey[keys[i]] = 0;
+            }
+            size = 0;
         }
 
-        if (state < 0 || state >= states.length) {
-            return 0;
+        private int indexOf(int blockId, int blockData, BlockStateDictionary dictionary) {
+            int key = (blockId << 4) | blockData;
+            int index = indexByKey[key];
+            if (index == 0) {
+                keys[size] = key;
+                stateIds[size] = dictionary.idOf("legacy:" + blockId + ":" + blockData);
+                index = ++size;
+                indexByKey[key] = index;
+            }
+            return index;
         }
-        long data = states[state];
-        long shifted = data >>> shift;
+    }
 
-        if (stretches && 64 - shift < bits && state + 1 < states.length) {
-            long data2 = states[state + 1];
-            int leftover = bits - (64 - shift);
-            shifted |= (data2 & ((1L << leftover) - 1L)) << (bits - leftover);
-        }
+    private record PaletteAndStates(List<NbtTag> palette, long[] states) {
+    }
+
+    /**
+     * Receives the encoded chunks of one region ({@link BlockRegionFormat} chunk bytes plus the block counts
+     * of {@link BlockChunkEncoder#histogram()}) on the thread reading that region, in file order.
+     */
+    public interface ChunkSink extends AutoCloseable {
+        void write(int chunkX, int chunkZ, byte[] chunk, long[] blockCounts) throws IOException;
 
-        return (int) (shifted & ((1L << bits) - 1L));
+        @Override
+        void close() throws IOException;
     }
 
-    private InputStream decompress(int compressionType, byte[] compressed) throws IOException {
-        return switch (compressionType) {
-            case 1 -> new GZIPInputStream(new ByteArrayInputStream(compressed));
-            case 2 -> new InflaterInputStream(new ByteArrayInputStream(compressed));
-            case 3 -> new ByteArrayInputStream(compressed);
-            default -> null;
-        };
+    /**
+     * Opens the sink for a region holding {@code chunkCount} chunks.
+     */
+    @FunctionalInterface
+    public interface RegionSink {
+        ChunkSink open(Path mcaFile, int chunkCount) throws IOException;
     }
 
-    private int nibble(byte[] data, int index) {
-        int value = data[index / 2] & 0xFF;
-        if (index % 2 == 0) {
-            return value & 0x0F;
-        }
-        return (value >> 4) & 0x0F;
+    /**
+     * Called on the region's thread once its region file (and CSV export) is closed.
+     */
+    @FunctionalInterface
+    public interface RegionListener {
+        void regionExtracted(Path regionFile);
     }
 
-    private record PaletteAndStates(List<NbtTag> palette, long[] states) {
+    @FunctionalInterface
+    private interface RegionTask {
+        ExtractSummary run(Path mcaFile, ExecutorService chunkPool);
     }
 
-    public record ExtractOptions(boolean skipAir, int yMin, int yMax) {
+    public record ExtractOptions(boolean skipAir,
+                                 int yMin,
+                                 int yMax,
+                                 int threads,
+                                 int chunkThreads,
+                                 boolean sectorOrder,
+                                 boolean exportCsv) {
     }
 
     public record ExtractSummary(long totalFiles, long totalChunks, long totalBlocks, int totalErrors) {
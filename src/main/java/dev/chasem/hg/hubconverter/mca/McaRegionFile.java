@@ -0,0 +1,129 @@
+package dev.chasem.hg.hubconverter.mca;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only view of an Anvil region file backed by a memory mapping. Chunk payloads are handed out as
+ * {@link ByteBuffer} slices of the mapping, so decompression reads straight from the page cache instead of
+ * copying every chunk into a fresh heap array.
+ */
+public final class McaRegionFile implements AutoCloseable {
+
+    public static final int SECTOR_BYTES = 4096;
+    public static final int CHUNKS_PER_REGION = 1024;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final long length;
+
+    private McaRegionFile(FileChannel channel, MappedByteBuffer mapped, long length) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.length = length;
+    }
+
+    public static McaRegionFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Region file too large to map: " + path.getFileName());
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new McaRegionFile(channel, mapped, length);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns the payload of the chunk at the given region-local coordinates, {@code null} when the slot is
+     * empty, or {@link ChunkPayload#INVALID} when the location entry points outside the file.
+     */
+    public ChunkPayload chunk(int chunkX, int chunkZ) {
+        int location = mapped.getInt(4 * (chunkX + chunkZ * 32));
+        int sectorOffset = location >>> 8;
+        int sectorCount = location & 0xFF;
+        if (sectorOffset == 0 || sectorCount == 0) {
+            return null;
+        }
+
+        long chunkStart = (long) sectorOffset * SECTOR_BYTES;
+        if (chunkStart + 5 > length) {
+            return ChunkPayload.INVALID;
+        }
+
+        int payloadLength = mapped.getInt((int) chunkStart);
+        if (payloadLength <= 1 || payloadLength > sectorCount * SECTOR_BYTES) {
+            return ChunkPayload.INVALID;
+        }
+        if (chunkStart + 4 + payloadLength > length) {
+            return ChunkPayload.INVALID;
+        }
+
+        int compressionType = mapped.get((int) chunkStart + 4) & 0xFF;
+        ByteBuffer data = mapped.slice((int) chunkStart + 5, payloadLength - 1);
+        return new ChunkPayload(compressionType, data);
+    }
+
+    /**
+     * Returns the occupied chunk slots ({@code chunkX + chunkZ * 32}) ordered by their sector offset, i.e. in
+     * the order their payloads appear in the file.
+     */
+    public int[] slotsInSectorOrder() {
+        if (length < SECTOR_BYTES) {
+            return new int[0];
+        }
+        long[] keyed = new long[CHUNKS_PER_REGION];
+        int count = 0;
+        for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+            int location = mapped.getInt(4 * slot);
+            int sectorOffset = location >>> 8;
+            if (sectorOffset != 0 && (location & 0xFF) != 0) {
+                keyed[count++] = ((long) sectorOffset << 10) | slot;
+            }
+        }
+        Arrays.sort(keyed, 0, count);
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = (int) (keyed[i] & (CHUNKS_PER_REGION - 1));
+        }
+        return slots;
+    }
+
+    /**
+     * Pages every chunk payload in ascending sector order so the device sees one forward sweep over the file.
+     * Decoding can then walk the chunks in z/x order against the page cache without random reads.
+     */
+    public void prefetchInSectorOrder() {
+        for (int slot : slotsInSectorOrder()) {
+            int location = mapped.getInt(4 * slot);
+            long chunkStart = (long) (location >>> 8) * SECTOR_BYTES;
+            long chunkEnd = Math.min(length, chunkStart + (long) (location & 0xFF) * SECTOR_BYTES);
+            if (chunkStart < chunkEnd) {
+                mapped.slice((int) chunkStart, (int) (chunkEnd - chunkStart)).load();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping stays valid after the channel closes, so in-flight slices remain readable.
+        channel.close();
+    }
+
+    public record ChunkPayload(int compressionType, ByteBuffer data) {
+        public static final ChunkPayload INVALID = new ChunkPayload(-1, null);
+    }
+}
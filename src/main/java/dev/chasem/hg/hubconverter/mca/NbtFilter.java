@@ -0,0 +1,40 @@
+package dev.chasem.hg.hubconverter.mca;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes which compound entries {@link NbtReader} should materialize. Entries that are not selected are
+ * skipped by length without being allocated. A filter passed for a list applies to each of its elements.
+ */
+public final class NbtFilter {
+
+    public static final NbtFilter ALL = new NbtFilter(null);
+
+    private final Map<String, NbtFilter> children;
+
+    private NbtFilter(Map<String, NbtFilter> children) {
+        this.children = children;
+    }
+
+    public static NbtFilter keys(String... names) {
+        Map<String, NbtFilter> children = new HashMap<>();
+        for (String name : names) {
+            children.put(name, ALL);
+        }
+        return new NbtFilter(children);
+    }
+
+    public NbtFilter with(String name, NbtFilter child) {
+        Map<String, NbtFilter> copy = children != null ? new HashMap<>(children) : new HashMap<>();
+        copy.put(name, child);
+        return new NbtFilter(copy);
+    }
+
+    /**
+     * Returns the filter for the named entry, or {@code null} when the entry should be skipped.
+     */
+    public NbtFilter child(String name) {
+        return children == null ? ALL : children.get(name);
+    }
+}
@@ -1,10 +1,10 @@
 package dev.chasem.hg.hubconverter.mca;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -12,102 +12,205 @@ import java.util.Map;
 
 public final class NbtReader {
 
-    private NbtReader() {
+    private static final ThreadLocal<NbtStringCache> STRING_CACHE = ThreadLocal.withInitial(NbtStringCache::new);
+    private static final NbtTag END_TAG = new NbtTag(NbtType.END, "", null);
+
+    private final ByteBuffer data;
+    private final NbtStringCache strings;
+    private final byte[] stringBuffer = new byte[NbtStringCache.MAX_CACHED_LENGTH];
+
+    private NbtReader(ByteBuffer data, NbtStringCache strings) {
+        this.data = data;
+        this.strings = strings;
     }
 
     public static NbtTag read(InputStream inputStream) throws IOException {
-        DataInputStream data = new DataInputStream(new BufferedInputStream(inputStream));
-        return readNamedTag(data);
+        return read(inputStream, NbtFilter.ALL);
+    }
+
+    /**
+     * Reads the root tag, materializing only the compound entries selected by {@code filter}. Everything
+     * else is skipped by length.
+     */
+    public static NbtTag read(InputStream inputStream, NbtFilter filter) throws IOException {
+        return read(ByteBuffer.wrap(inputStream.readAllBytes()), filter);
     }
 
-    private static NbtTag readNamedTag(DataInputStream data) throws IOException {
-        int typeId = data.readUnsignedByte();
+    /**
+     * Reads the root tag from the remaining bytes of {@code payload} without consuming it. Every length
+     * prefix is checked against the bytes left in the payload before anything is allocated.
+     */
+    public static NbtTag read(ByteBuffer payload, NbtFilter filter) throws IOException {
+        ByteBuffer data = payload.slice().order(ByteOrder.BIG_ENDIAN);
+        try {
+            return new NbtReader(data, STRING_CACHE.get()).readNamedTag(filter);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated NBT payload", e);
+        }
+    }
+
+    private NbtTag readNamedTag(NbtFilter filter) throws IOException {
+        int typeId = data.get() & 0xFF;
         NbtType type = NbtType.fromId(typeId);
         if (type == NbtType.END) {
-            return new NbtTag(type, "", null);
+            return END_TAG;
         }
-        String name = readString(data);
-        Object value = readPayload(type, data);
-        return new NbtTag(type, name, value);
+        String name = readString();
+        return readTag(type, name, filter);
     }
 
-    private static Object readPayload(NbtType type, DataInputStream data) throws IOException {
+    private NbtTag readTag(NbtType type, String name, NbtFilter filter) throws IOException {
         return switch (type) {
-            case END -> null;
-            case BYTE -> data.readByte();
-            case SHORT -> data.readShort();
-            case INT -> data.readInt();
-            case LONG -> data.readLong();
-            case FLOAT -> data.readFloat();
-            case DOUBLE -> data.readDouble();
-            case BYTE_ARRAY -> readByteArray(data);
-            case STRING -> readString(data);
-            case LIST -> readList(data);
-            case COMPOUND -> readCompound(data);
-            case INT_ARRAY -> readIntArray(data);
-            case LONG_ARRAY -> readLongArray(data);
+            case END -> new NbtTag(type, name, null);
+            case BYTE -> NbtTag.ofIntegral(type, name, data.get());
+            case SHORT -> NbtTag.ofIntegral(type, name, data.getShort());
+            case INT -> NbtTag.ofIntegral(type, name, data.getInt());
+            case LONG -> NbtTag.ofIntegral(type, name, data.getLong());
+            case FLOAT -> NbtTag.ofDecimal(type, name, data.getFloat());
+            case DOUBLE -> NbtTag.ofDecimal(type, name, data.getDouble());
+            case BYTE_ARRAY -> new NbtTag(type, name, readByteArray());
+            case STRING -> new NbtTag(type, name, readString());
+            case LIST -> new NbtTag(type, name, readList(filter));
+            case COMPOUND -> new NbtTag(type, name, readCompound(filter));
+            case INT_ARRAY -> new NbtTag(type, name, readIntArray());
+            case LONG_ARRAY -> new NbtTag(type, name, readLongArray());
         };
     }
 
-    private static byte[] readByteArray(DataInputStream data) throws IOException {
-        int length = data.readInt();
+    private byte[] readByteArray() throws IOException {
+        int length = readLength(1);
         byte[] value = new byte[length];
-        data.readFully(value);
+        data.get(value);
         return value;
     }
 
-    private static int[] readIntArray(DataInputStream data) throws IOException {
-        int length = data.readInt();
+    private int[] readIntArray() throws IOException {
+        int length = readLength(Integer.BYTES);
         int[] value = new int[length];
-        for (int i = 0; i < length; i++) {
-            value[i] = data.readInt();
-        }
+        data.asIntBuffer().get(value);
+        data.position(data.position() + length * Integer.BYTES);
         return value;
     }
 
-    private static long[] readLongArray(DataInputStream data) throws IOException {
-        int length = data.readInt();
+    private long[] readLongArray() throws IOException {
+        int length = readLength(Long.BYTES);
         long[] value = new long[length];
-        for (int i = 0; i < length; i++) {
-            value[i] = data.readLong();
-        }
+        data.asLongBuffer().get(value);
+        data.position(data.position() + length * Long.BYTES);
         return value;
     }
 
-    private static List<NbtTag> readList(DataInputStream data) throws IOException {
-        int elementTypeId = data.readUnsignedByte();
+    private List<NbtTag> readList(NbtFilter filter) throws IOException {
+        int elementTypeId = data.get() & 0xFF;
         NbtType elementType = NbtType.fromId(elementTypeId);
-        int length = data.readInt();
+        int length = readLength(Math.max(1, fixedPayloadSize(elementType)));
         List<NbtTag> list = new ArrayList<>(length);
         for (int i = 0; i < length; i++) {
-            Object value = readPayload(elementType, data);
-            list.add(new NbtTag(elementType, null, value));
+            list.add(readTag(elementType, null, filter));
         }
         return list;
     }
 
-    private static Map<String, NbtTag> readCompound(DataInputStream data) throws IOException {
+    private Map<String, NbtTag> readCompound(NbtFilter filter) throws IOException {
         Map<String, NbtTag> map = new LinkedHashMap<>();
         while (true) {
-            int typeId = data.readUnsignedByte();
+            int typeId = data.get() & 0xFF;
             NbtType type = NbtType.fromId(typeId);
             if (type == NbtType.END) {
                 break;
             }
-            String name = readString(data);
-            Object value = readPayload(type, data);
-            map.put(name, new NbtTag(type, name, value));
+            String name = readString();
+            NbtFilter childFilter = filter.child(name);
+            if (childFilter == null) {
+                skipPayload(type);
+                continue;
+            }
+            map.put(name, readTag(type, name, childFilter));
         }
         return map;
     }
 
-    private static String readString(DataInputStream data) throws IOException {
-        int length = data.readUnsignedShort();
+    private void skipPayload(NbtType type) throws IOException {
+        switch (type) {
+            case END -> {
+            }
+            case BYTE_ARRAY -> skip(readLength(1));
+            case INT_ARRAY -> skip(readLength(Integer.BYTES) * Integer.BYTES);
+            case LONG_ARRAY -> skip(readLength(Long.BYTES) * Long.BYTES);
+            case STRING -> skip(data.getShort() & 0xFFFF);
+            case LIST -> {
+                NbtType elementType = NbtType.fromId(data.get() & 0xFF);
+                int fixedSize = fixedPayloadSize(elementType);
+                int length = readLength(Math.max(1, fixedSize));
+                if (fixedSize >= 0) {
+                    skip(fixedSize * length);
+                } else {
+                    for (int i = 0; i < length; i++) {
+                        skipPayload(elementType);
+                    }
+                }
+            }
+            case COMPOUND -> {
+                while (true) {
+                    NbtType entryType = NbtType.fromId(data.get() & 0xFF);
+                    if (entryType == NbtType.END) {
+                        break;
+                    }
+                    skip(data.getShort() & 0xFFFF);
+                    skipPayload(entryType);
+                }
+            }
+            default -> skip(fixedPayloadSize(type));
+        }
+    }
+
+    private void skip(int count) throws IOException {
+        if (count > data.remaining()) {
+            throw new IOException("NBT payload truncated: need " + count + " bytes, have " + data.remaining());
+        }
+        data.position(data.position() + count);
+    }
+
+    private static int fixedPayloadSize(NbtType type) {
+        return switch (type) {
+            case END -> 0;
+            case BYTE -> 1;
+            case SHORT -> 2;
+            case INT, FLOAT -> 4;
+            case LONG, DOUBLE -> 8;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Reads an element count and rejects it when {@code count * minElementBytes} exceeds what is left in the
+     * payload, so a corrupt length fails fast instead of triggering a huge allocation.
+     */
+    private int readLength(int minElementBytes) throws IOException {
+        int length = data.getInt();
+        if (length < 0) {
+            throw new IOException("Negative NBT length: " + length);
+        }
+        if ((long) length * minElementBytes > data.remaining()) {
+            throw new IOException("NBT length " + length + " exceeds remaining payload of " + data.remaining() + " bytes");
+        }
+        return length;
+    }
+
+    private String readString() throws IOException {
+        int length = data.getShort() & 0xFFFF;
         if (length <= 0) {
             return "";
         }
-        byte[] bytes = new byte[length];
-        data.readFully(bytes);
-        return new String(bytes, StandardCharsets.UTF_8);
+        if (length > data.remaining()) {
+            throw new IOException("NBT string length " + length + " exceeds remaining payload");
+        }
+        if (length > NbtStringCache.MAX_CACHED_LENGTH) {
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+            return strings.get(bytes, length);
+        }
+        data.get(stringBuffer, 0, length);
+        return strings.get(stringBuffer, length);
     }
 }
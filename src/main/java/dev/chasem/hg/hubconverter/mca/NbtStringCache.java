@@ -0,0 +1,37 @@
+package dev.chasem.hg.hubconverter.mca;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Small direct-mapped UTF-8 to String cache. Chunk NBT repeats the same compound keys ("Name", "Properties",
+ * "palette") and block names thousands of times per region; decoding each occurrence once per slot keeps
+ * those repeats from allocating. Not thread-safe: {@link NbtReader} keeps one per thread.
+ */
+final class NbtStringCache {
+
+    static final int MAX_CACHED_LENGTH = 64;
+    private static final int SLOTS = 1024;
+
+    private final byte[][] keys = new byte[SLOTS][];
+    private final String[] values = new String[SLOTS];
+
+    String get(byte[] bytes, int length) {
+        if (length > MAX_CACHED_LENGTH) {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        byte[] key = keys[slot];
+        if (key != null && Arrays.equals(key, 0, key.length, bytes, 0, length)) {
+            return values[slot];
+        }
+        String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        keys[slot] = Arrays.copyOf(bytes, length);
+        values[slot] = value;
+        return value;
+    }
+}
@@ -5,11 +5,34 @@ public final class NbtTag {
     private final NbtType type;
     private final String name;
     private final Object value;
+    private final long bits;
 
     public NbtTag(NbtType type, String name, Object value) {
         this.type = type;
         this.name = name;
         this.value = value;
+        this.bits = 0L;
+    }
+
+    private NbtTag(NbtType type, String name, long bits) {
+        this.type = type;
+        this.name = name;
+        this.value = null;
+        this.bits = bits;
+    }
+
+    /**
+     * Creates a BYTE, SHORT, INT or LONG tag without boxing the value.
+     */
+    public static NbtTag ofIntegral(NbtType type, String name, long value) {
+        return new NbtTag(type, name, value);
+    }
+
+    /**
+     * Creates a FLOAT or DOUBLE tag without boxing the value.
+     */
+    public static NbtTag ofDecimal(NbtType type, String name, double value) {
+        return new NbtTag(type, name, Double.doubleToRawLongBits(value));
     }
 
     public NbtType getType() {
@@ -20,7 +43,46 @@ public final class NbtTag {
         return name;
     }
 
+    public boolean isNumeric() {
+        return switch (type) {
+            case BYTE, SHORT, INT, LONG, FLOAT, DOUBLE -> true;
+            default -> false;
+        };
+    }
+
+    public long longValue() {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return isDecimal() ? (long) Double.longBitsToDouble(bits) : bits;
+    }
+
+    public double doubleValue() {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        return isDecimal() ? Double.longBitsToDouble(bits) : bits;
+    }
+
+    /**
+     * Returns the payload; numeric tags created through {@link #ofIntegral} or {@link #ofDecimal} are boxed
+     * on demand as the matching wrapper type.
+     */
     public Object getValue() {
-        return value;
+        if (value != null || !isNumeric()) {
+            return value;
+        }
+        return switch (type) {
+            case BYTE -> (byte) bits;
+            case SHORT -> (short) bits;
+            case INT -> (int) bits;
+            case LONG -> bits;
+            case FLOAT -> (float) Double.longBitsToDouble(bits);
+            default -> Double.longBitsToDouble(bits);
+        };
+    }
+
+    private boolean isDecimal() {
+        return type == NbtType.FLOAT || type == NbtType.DOUBLE;
     }
 }
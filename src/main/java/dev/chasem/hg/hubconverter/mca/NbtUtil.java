@@ -84,12 +84,17 @@ public final class NbtUtil {
     }
 
     public static Integer getInt(Map<String, NbtTag> compound, String key) {
-        Number number = asNumber(getTag(compound, key));
-        return number != null ? number.intValue() : null;
+        NbtTag tag = getTag(compound, key);
+        return tag != null && tag.isNumeric() ? (int) tag.longValue() : null;
+    }
+
+    public static int getInt(Map<String, NbtTag> compound, String key, int defaultValue) {
+        NbtTag tag = getTag(compound, key);
+        return tag != null && tag.isNumeric() ? (int) tag.longValue() : defaultValue;
     }
 
     public static Long getLong(Map<String, NbtTag> compound, String key) {
-        Number number = asNumber(getTag(compound, key));
-        return number != null ? number.longValue() : null;
+        NbtTag tag = getTag(compound, key);
+        return tag != null && tag.isNumeric() ? tag.longValue() : null;
     }
 }
@@ -0,0 +1,141 @@
+package dev.chasem.hg.hubconverter.mca;
+
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maps raw palette compounds ({@code Name} plus {@code Properties}) to block state dictionary ids. The same
+ * few hundred states repeat across millions of sections, so the sorted {@code name[key=value,...]} string is
+ * built once per distinct entry instead of once per section.
+ *
+ * <p>Shared by all decode threads. Once {@code maxEntries} distinct entries are cached, further new entries
+ * are still resolved but no longer stored.
+ */
+final class PaletteEntryCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 16_384;
+    private static final String AIR = "minecraft:air";
+
+    private final BlockStateDictionary dictionary;
+    private final int maxEntries;
+    private final ConcurrentHashMap<RawEntry, Integer> stateIds = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    PaletteEntryCache(BlockStateDictionary dictionary, int maxEntries) {
+        this.dictionary = dictionary;
+        this.maxEntries = maxEntries;
+    }
+
+    int stateId(NbtTag entry) {
+        Map<String, NbtTag> compound = NbtUtil.asCompound(entry);
+        if (compound == null) {
+            return dictionary.idOf(AIR);
+        }
+        String name = NbtUtil.getString(compound, "Name");
+        Map<String, NbtTag> props = NbtUtil.getCompound(compound, "Properties");
+        String[] pairs = new String[props == null ? 0 : props.size() * 2];
+        if (props != null) {
+            int i = 0;
+            for (Map.Entry<String, NbtTag> prop : props.entrySet()) {
+                pairs[i++] = prop.getKey();
+                pairs[i++] = NbtUtil.asString(prop.getValue());
+            }
+        }
+
+        RawEntry key = new RawEntry(name, pairs);
+        Integer cached = stateIds.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        int stateId = dictionary.idOf(format(name, props));
+        if (stateIds.size() < maxEntries) {
+            stateIds.putIfAbsent(key, stateId);
+        }
+        return stateId;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    int size() {
+        return stateIds.size();
+    }
+
+    /**
+     * Formats an entry as {@code name} or {@code name[key=value,...]} with the properties sorted by key.
+     */
+    static String format(String name, Map<String, NbtTag> props) {
+        if (name == null || name.isBlank()) {
+            return AIR;
+        }
+        if (props == null || props.isEmpty()) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append('[');
+        Map<String, String> sortedProps = new TreeMap<>();
+        for (Map.Entry<String, NbtTag> prop : props.entrySet()) {
+            String value = NbtUtil.asString(prop.getValue());
+            if (value != null) {
+                sortedProps.put(prop.getKey(), value);
+            }
+        }
+        boolean first = true;
+        for (Map.Entry<String, String> prop : sortedProps.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(prop.getKey()).append('=').append(prop.getValue());
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    /**
+     * The entry's name and property key/value pairs in NBT order. Two orders of the same properties are
+     * different keys, but they format to the same string and therefore the same id.
+     */
+    private static final class RawEntry {
+        private final String name;
+        private final String[] pairs;
+        private final int hash;
+
+        private RawEntry(String name, String[] pairs) {
+            this.name = name;
+            this.pairs = pairs;
+            this.hash = 31 * (name == null ? 0 : name.hashCode()) + Arrays.hashCode(pairs);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof RawEntry entry)) {
+                return false;
+            }
+            return hash == entry.hash
+                    && (name == null ? entry.name == null : name.equals(entry.name))
+                    && Arrays.equals(pairs, entry.pairs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.chasem.hg.hubconverter.mca;
+
+import java.util.Arrays;
+
+/**
+ * Decodes a section's packed block-state array into one palette index per block in a single pass over the
+ * longs, instead of recomputing the word and shift for every index.
+ *
+ * <p>Two layouts exist: since 20w17a values never span two longs (the top bits of each long are padding);
+ * before that the array is one continuous bit stream and a value may straddle a long boundary. Indices that
+ * fall past the end of a short array decode as 0, matching the per-index decoder this replaces.
+ */
+final class PaletteUnpacker {
+
+    static final int SECTION_BLOCKS = 4096;
+
+    private PaletteUnpacker() {
+    }
+
+    static void unpack(long[] states, int bits, boolean stretches, int[] out) {
+        if (states.length == 0 || bits <= 0) {
+            Arrays.fill(out, 0, SECTION_BLOCKS, 0);
+            return;
+        }
+        if (stretches) {
+            unpackStretched(states, bits, out);
+            return;
+        }
+        switch (bits) {
+            case 4 -> unpackPacked4(states, out);
+            case 8 -> unpackPacked8(states, out);
+            default -> unpackPacked(states, bits, out);
+        }
+    }
+
+    private static void unpackPacked(long[] states, int bits, int[] out) {
+        int valuesPerLong = 64 / bits;
+        long mask = (1L << bits) - 1L;
+        int index = 0;
+        for (int w = 0; w < states.length && index < SECTION_BLOCKS; w++) {
+            long word = states[w];
+            int count = Math.min(valuesPerLong, SECTION_BLOCKS - index);
+            for (int j = 0; j < count; j++) {
+                out[index++] = (int) (word & mask);
+                word >>>= bits;
+            }
+        }
+        Arrays.fill(out, index, SECTION_BLOCKS, 0);
+    }
+
+    private static void unpackPacked4(long[] states, int[] out) {
+        int words = Math.min(states.length, SECTION_BLOCKS / 16);
+        int index = 0;
+        for (int w = 0; w < words; w++) {
+            long word = states[w];
+            for (int shift = 0; shift < 64; shift += 4) {
+                out[index++] = (int) ((word >>> shift) & 0xFL);
+            }
+        }
+        Arrays.fill(out, index, SECTION_BLOCKS, 0);
+    }
+
+    private static void unpackPacked8(long[] states, int[] out) {
+        int words = Math.min(states.length, SECTION_BLOCKS / 8);
+        int index = 0;
+        for (int w = 0; w < words; w++) {
+            long word = states[w];
+            for (int shift = 0; shift < 64; shift += 8) {
+                out[index++] = (int) ((word >>> shift) & 0xFFL);
+            }
+        }
+        Arrays.fill(out, index, SECTION_BLOCKS, 0);
+    }
+
+    private static void unpackStretched(long[] states, int bits, int[] out) {
+        long mask = (1L << bits) - 1L;
+        int w = 0;
+        int shift = 0;
+        int index = 0;
+        while (index < SECTION_BLOCKS && w < states.length) {
+            long word = states[w];
+            long value = word >>> shift;
+            int end = shift + bits;
+            if (end < 64) {
+                shift = end;
+            } else {
+                w++;
+                shift = end - 64;
+                if (shift > 0 && w < states.length) {
+                    value |= states[w] << (bits - shift);
+                }
+            }
+            out[index++] = (int) (value & mask);
+        }
+        Arrays.fill(out, index, SECTION_BLOCKS, 0);
+    }
+}
@@ -0,0 +1,212 @@
+package dev.chasem.hg.hubconverter.pipeline;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.World;
+import dev.chasem.hg.hubconverter.config.HytalesHubConfig;
+import dev.chasem.hg.hubconverter.convert.RegionCsvConverter;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
+import dev.chasem.hg.hubconverter.mapping.BlockMapper;
+import dev.chasem.hg.hubconverter.mca.McaRegionExtractor;
+import dev.chasem.hg.hubconverter.spawn.RegionSpawner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs extract, map, convert and spawn region by region instead of as four barriers. When a mapping is
+ * already available (from an earlier map or run), each region whose blocks it all covers is converted and
+ * spawned as soon as it has been extracted, while later regions are still being extracted. Other regions, and
+ * every region when there is no mapping yet, wait for the map step; conversion and spawning then still go
+ * region by region.
+ *
+ * <p>At most {@code RunRegionsInFlight} regions are converted or spawned at once; extracted regions wait on
+ * disk for their turn. The map step always runs once extraction is done, so {@code block-mapping.csv} and
+ * {@code unmapped-blocks.csv} cover every extracted block for the next run.
+ */
+public class RegionScheduler {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final BlockStateDictionary dictionary;
+
+    public RegionScheduler(BlockStateDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Runs every stage. With a null {@code world}, regions are converted but not spawned.
+     */
+    public RunSummary run(World world,
+                          Path mcRegionsDir,
+                          Path outputDir,
+                          Path mappingFile,
+                          Path unmappedFile,
+                          Path overridesFile,
+                          Path blockIdsFile,
+                          HytalesHubConfig config) {
+        RegionCsvConverter converter = new RegionCsvConverter(dictionary);
+        Downstream downstream = new Downstream(world, new RegionSpawner(dictionary), config);
+
+        RegionCsvConverter.Session existing = converter.openSession(mappingFile, outputDir,
+                config.getConvertYOffset(), config.getDefaultUnmappedBlock(), config.isExportCsv(),
+                config.getConvertSortMemoryMb(), config.getRunRegionsInFlight());
+        if (existing != null) {
+            LOGGER.atInfo().log("[HytalesHub] Using existing %s; regions are converted as they are extracted",
+                    mappingFile.getFileName());
+        }
+
+        List<Path> deferred = Collections.synchronizedList(new ArrayList<>());
+        McaRegionExtractor.ExtractOptions options = new McaRegionExtractor.ExtractOptions(
+                config.isSkipAir(), config.getExtractYMin(), config.getExtractYMax(),
+                config.getExtractThreads(), config.getExtractChunkThreads(), config.isExtractSectorOrder(),
+                config.isExportCsv());
+        McaRegionExtractor.ExtractSummary extract = new McaRegionExtractor(dictionary).extractAll(
+                mcRegionsDir, mcRegionsDir, options, regionFile -> {
+                    if (existing != null && existing.covers(regionFile)) {
+                        downstream.submit(existing, regionFile);
+                    } else {
+                        deferred.add(regionFile);
+                    }
+                });
+        // Region files refer to dictionary ids, so keep them on disk before anything else can fail.
+        dictionary.save();
+
+        BlockMapper.MapResult map = new BlockMapper(dictionary).mapBlocks(
+                mcRegionsDir, mappingFile, unmappedFile, overridesFile, blockIdsFile, config, world);
+
+        int mappingErrors = 0;
+        if (existing != null && !deferred.isEmpty()) {
+            LOGGER.atInfo().log("[HytalesHub] %d regions have blocks missing from the old %s; converted after map",
+                    deferred.size(), mappingFile.getFileName());
+        }
+        if (existing == null || !deferred.isEmpty()) {
+            RegionCsvConverter.Session session = converter.openSession(mappingFile, outputDir,
+                    config.getConvertYOffset(), config.getDefaultUnmappedBlock(), config.isExportCsv(),
+                    config.getConvertSortMemoryMb(), config.getRunRegionsInFlight());
+            if (session == null) {
+                LOGGER.atWarning().log("[HytalesHub] No mapping in %s; skipping convert and spawn", mappingFile);
+                mappingErrors = 1;
+            } else {
+                List<Path> regions = new ArrayList<>(deferred);
+                regions.sort(null);
+                for (Path regionFile : regions) {
+                    downstream.submit(session, regionFile);
+                }
+            }
+        }
+
+        return downstream.finish(extract, map, mappingErrors);
+    }
+
+    /**
+     * Converts, then spawns, each region handed over, on a pool of {@code RunRegionsInFlight} workers.
+     */
+    private static final class Downstream {
+        private final World world;
+        private final RegionSpawner spawner;
+        private final int spawnThreads;
+        private final ExecutorService executor;
+        private final List<Path> regions = new ArrayList<>();
+        private final List<Future<RegionResult>> futures = new ArrayList<>();
+        private final AtomicBoolean firstSpawn = new AtomicBoolean();
+        private final long start = System.currentTimeMillis();
+
+        private Downstream(World world, RegionSpawner spawner, HytalesHubConfig config) {
+            this.world = world;
+            this.spawner = spawner;
+            this.spawnThreads = config.getSpawnThreads();
+            this.executor = Executors.newFixedThreadPool(Math.max(1, config.getRunRegionsInFlight()));
+        }
+
+        private synchronized void submit(RegionCsvConverter.Session session, Path regionFile) {
+            regions.add(regionFile);
+            futures.add(executor.submit(() -> process(session, regionFile)));
+        }
+
+        private RegionResult process(RegionCsvConverter.Session session, Path regionFile) {
+            RegionCsvConverter.ConvertSummary converted = session.convert(regionFile);
+            if (world == null || converted.errors() > 0) {
+                return new RegionResult(converted, null);
+            }
+            if (firstSpawn.compareAndSet(false, true)) {
+                LOGGER.atInfo().log("[HytalesHub] First region spawning after %.2fs: %s",
+                        (System.currentTimeMillis() - start) / 1000.0, regionFile.getFileName());
+            }
+            Path convertedFile = session.outputPathFor(regionFile);
+            RegionSpawner.SpawnResult spawned = spawner.spawnFile(world, convertedFile, spawnThreads);
+            LOGGER.atInfo().log("[HytalesHub] Spawned %s: placed=%d skipped=%d errors=%d",
+                    convertedFile.getFileName(), spawned.placed(), spawned.skipped(), spawned.errors());
+            return new RegionResult(converted, spawned);
+        }
+
+        private RunSummary finish(McaRegionExtractor.ExtractSummary extract,
+                                  BlockMapper.MapResult map,
+                                  int mappingErrors) {
+            List<Future<RegionResult>> pending;
+            synchronized (this) {
+                executor.shutdown();
+                pending = new ArrayList<>(futures);
+            }
+
+            int convertedFiles = 0;
+            long rows = 0;
+            long unmapped = 0;
+            long resolvedKeys = 0;
+            int convertErrors = mappingErrors;
+            int spawnedFiles = 0;
+            long placed = 0;
+            long skipped = 0;
+            long spawnErrors = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                RegionResult result;
+                try {
+                    result = pending.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    LOGGER.atWarning().log("[HytalesHub] Failed to convert or spawn %s: %s",
+                            regions.get(i).getFileName(), cause.getMessage());
+                    convertErrors++;
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    executor.shutdownNow();
+                    convertErrors++;
+                    break;
+                }
+                convertedFiles += result.converted.totalFiles();
+                rows += result.converted.totalRows();
+                unmapped += result.converted.totalUnmapped();
+                convertErrors += result.converted.errors();
+                // Each region reports its session's running total.
+                resolvedKeys = Math.max(resolvedKeys, result.converted.resolvedKeys());
+                if (result.spawned != null) {
+                    spawnedFiles++;
+                    placed += result.spawned.placed();
+                    skipped += result.spawned.skipped();
+                    spawnErrors += result.spawned.errors();
+                }
+            }
+
+            return new RunSummary(extract, map,
+                    new RegionCsvConverter.ConvertSummary(convertedFiles, rows, unmapped, convertErrors, resolvedKeys),
+                    new RegionSpawner.SpawnSummary(spawnedFiles, placed, skipped, spawnErrors,
+                            System.currentTimeMillis() - start));
+        }
+    }
+
+    private record RegionResult(RegionCsvConverter.ConvertSummary converted, RegionSpawner.SpawnResult spawned) {
+    }
+
+    public record RunSummary(McaRegionExtractor.ExtractSummary extract,
+                             BlockMapper.MapResult map,
+                             RegionCsvConverter.ConvertSummary convert,
+                             RegionSpawner.SpawnSummary spawn) {
+    }
+}
@@ -0,0 +1,196 @@
+package dev.chasem.hg.hubconverter.pipeline;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.World;
+import dev.chasem.hg.hubconverter.config.HytalesHubConfig;
+import dev.chasem.hg.hubconverter.io.BlockHistogram;
+import dev.chasem.hg.hubconverter.io.BlockRegionFormat;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
+import dev.chasem.hg.hubconverter.mapping.BlockMapper;
+import dev.chasem.hg.hubconverter.mca.McaRegionExtractor;
+import dev.chasem.hg.hubconverter.spawn.RegionSpawner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Imports {@code .mca} regions straight into a world: chunks are decoded, each section's palette is mapped to
+ * Hytale blocks and the blocks are placed, without writing region or CSV files in between. The block
+ * histogram, {@code block-mapping.csv} and {@code unmapped-blocks.csv} are still written at the end.
+ *
+ * <p>Blocks are mapped as they are met, with the same overrides and heuristic as the map step. Regions are
+ * imported one at a time (chunks within a region are still decoded and placed in parallel), so each
+ * region's progress is logged like a spawned file.
+ */
+public class StreamingImporter {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final String UNMAPPED_VALUE = "UNMAPPED";
+
+    private final BlockStateDictionary dictionary;
+
+    public StreamingImporter(BlockStateDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public ImportSummary importAll(World world,
+                                   Path mcaDir,
+                                   Path mappingFile,
+                                   Path unmappedFile,
+                                   Path overridesFile,
+                                   Path blockIdsFile,
+                                   HytalesHubConfig config) {
+        if (world == null) {
+            return new ImportSummary(0, 0, 0, 0, 0, 0, 1);
+        }
+
+        BlockMapper mapper = new BlockMapper(dictionary);
+        TargetTable targets = new TargetTable(
+                mapper.openMatcher(overridesFile, blockIdsFile, config, world), config.getDefaultUnmappedBlock());
+        BlockHistogram histogram = new BlockHistogram();
+        RegionSpawner spawner = new RegionSpawner(dictionary);
+        ImportTotals totals = new ImportTotals();
+
+        McaRegionExtractor.ExtractOptions options = new McaRegionExtractor.ExtractOptions(
+                config.isSkipAir(), config.getExtractYMin(), config.getExtractYMax(),
+                1, config.getExtractChunkThreads(), config.isExtractSectorOrder(), false);
+        McaRegionExtractor.ExtractSummary extracted = new McaRegionExtractor(dictionary).streamAll(mcaDir, options,
+                (mcaFile, chunkCount) -> new RegionImport(spawner.openPlacer(world, mcaFile, chunkCount,
+                        config.getSpawnThreads(), config.getConvertYOffset(), targets::block),
+                        mcaFile, targets, histogram, totals));
+
+        Path histogramFile = mcaDir.resolve(BlockRegionFormat.MERGED_HISTOGRAM);
+        try {
+            histogram.write(histogramFile, dictionary);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to write %s: %s", histogramFile, e.getMessage());
+        }
+        BlockMapper.MapResult mapped = mapper.mapHistogram(histogram.byName(dictionary), mappingFile, unmappedFile,
+                overridesFile, blockIdsFile, config, world);
+        LOGGER.atInfo().log("[HytalesHub] Streaming import mapped %d blocks, %d unmatched",
+                mapped.uniqueMcBlocks(), mapped.unmatchedCount());
+
+        return new ImportSummary(extracted.totalFiles(), extracted.totalChunks(), extracted.totalBlocks(),
+                totals.unmapped, totals.placed, totals.skipped, extracted.totalErrors() + totals.errors);
+    }
+
+    /**
+     * Feeds one region's chunks to its placer and counts their blocks. Runs on the region's thread.
+     */
+    private static final class RegionImport implements McaRegionExtractor.ChunkSink {
+        private final RegionSpawner.ChunkPlacer placer;
+        private final Path mcaFile;
+        private final TargetTable targets;
+        private final BlockHistogram histogram;
+        private final ImportTotals totals;
+
+        private RegionImport(RegionSpawner.ChunkPlacer placer,
+                             Path mcaFile,
+                             TargetTable targets,
+                             BlockHistogram histogram,
+                             ImportTotals totals) {
+            this.placer = placer;
+            this.mcaFile = mcaFile;
+            this.targets = targets;
+            this.histogram = histogram;
+            this.totals = totals;
+        }
+
+        @Override
+        public void write(int chunkX, int chunkZ, byte[] chunk, long[] blockCounts) throws IOException {
+            histogram.addEntries(blockCounts);
+            for (long entry : blockCounts) {
+                if (targets.isUnmapped((int) (entry >>> 32))) {
+                    totals.unmapped += entry & 0xFFFFFFFFL;
+                }
+            }
+            try {
+                placer.place(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while placing chunk (" + chunkX + "," + chunkZ + ")", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            RegionSpawner.SpawnResult result = placer.finish();
+            totals.placed += result.placed();
+            totals.skipped += result.skipped();
+            totals.errors += result.errors();
+            LOGGER.atInfo().log("[HytalesHub] Imported %s: placed=%d skipped=%d errors=%d",
+                    mcaFile.getFileName(), result.placed(), result.skipped(), result.errors());
+        }
+    }
+
+    /**
+     * Hytale block by Minecraft state id, resolved through the matcher the first time a state is placed.
+     * Placer threads read it concurrently; misses fall through to the synchronized slow path.
+     */
+    private final class TargetTable {
+        private final BlockMapper.Matcher matcher;
+        private final String defaultUnmappedBlock;
+        private Target[] targets = new Target[256];
+
+        private TargetTable(BlockMapper.Matcher matcher, String defaultUnmappedBlock) {
+            this.matcher = matcher;
+            this.defaultUnmappedBlock = defaultUnmappedBlock;
+        }
+
+        private String block(int stateId) {
+            return target(stateId).block;
+        }
+
+        private boolean isUnmapped(int stateId) {
+            return target(stateId).unmapped;
+        }
+
+        private Target target(int stateId) {
+            Target[] table = targets;
+            Target target = stateId < table.length ? table[stateId] : null;
+            return target != null ? target : resolve(stateId);
+        }
+
+        private synchronized Target resolve(int stateId) {
+            if (stateId >= targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(stateId + 1, targets.length * 2));
+            }
+            Target target = targets[stateId];
+            if (target == null) {
+                String mapped = matcher.match(dictionary.name(stateId));
+                if (mapped != null) {
+                    target = new Target(mapped, false);
+                } else if (defaultUnmappedBlock != null && !defaultUnmappedBlock.isBlank()) {
+                    target = new Target(defaultUnmappedBlock, true);
+                } else {
+                    target = new Target(UNMAPPED_VALUE, true);
+                }
+                targets[stateId] = target;
+            }
+            return target;
+        }
+    }
+
+    private record Target(String block, boolean unmapped) {
+    }
+
+    /**
+     * Totals across regions; only touched by the thread reading regions.
+     */
+    private static final class ImportTotals {
+        private long unmapped;
+        private long placed;
+        private long skipped;
+        private long errors;
+    }
+
+    public record ImportSummary(long regions,
+                                long chunks,
+                                long blocks,
+                                long unmapped,
+                                long placed,
+                                long skipped,
+                                long errors) {
+    }
+}
@@ -2,32 +2,46 @@ package dev.chasem.hg.hubconverter.spawn;
 
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.universe.world.World;
+import dev.chasem.hg.hubconverter.io.BlockRegionFormat;
+import dev.chasem.hg.hubconverter.io.BlockRegionReader;
+import dev.chasem.hg.hubconverter.io.BlockSection;
+import dev.chasem.hg.hubconverter.io.BlockStateDictionary;
+import dev.chasem.hg.hubconverter.io.CsvChunkIndex;
+import dev.chasem.hg.hubconverter.io.CsvNameTable;
+import dev.chasem.hg.hubconverter.io.CsvScanner;
 
-import java.io.BufferedReader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 public class RegionSpawner {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
     private static final String UNMAPPED_VALUE = "UNMAPPED";
 
+    private final BlockStateDictionary dictionary;
+
+    public RegionSpawner(BlockStateDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
     public SpawnSummary spawnAll(World world, Path regionDir, int threadCount) {
         if (world == null || regionDir == null || !Files.exists(regionDir)) {
             return new SpawnSummary(0, 0, 0, 0, 1);
         }
 
-        List<Path> files = listCsvFiles(regionDir);
+        List<Path> files = BlockRegionFormat.listStageInputs(regionDir);
         if (files.isEmpty()) {
             return new SpawnSummary(0, 0, 0, 0, 0);
         }
@@ -52,43 +66,40 @@ public class RegionSpawner {
         return new SpawnSummary(files.size(), totalPlaced, totalSkipped, totalErrors, elapsed);
     }
 
-    private List<Path> listCsvFiles(Path dir) {
-        List<Path> files = new ArrayList<>();
-        try (var stream = Files.list(dir)) {
-            stream.filter(path -> path.getFileName().toString().toLowerCase().endsWith(".csv"))
-                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
-                    .forEach(files::add);
-        } catch (Exception e) {
-            LOGGER.atWarning().log("[HytalesHub] Failed to list region CSVs in %s: %s", dir, e.getMessage());
+    /**
+     * Spawns a single converted file, e.g. while a run is still converting the rest.
+     */
+    public SpawnResult spawnFile(World world, Path file, int threadCount) {
+        if (world == null || file == null || !Files.exists(file)) {
+            return new SpawnResult(0, 0, 1, 0);
         }
-        return files;
+        return loadFile(world, file, threadCount);
     }
 
-    private SpawnResult loadFile(World world, Path csvPath, int threadCount) {
-        int placed = 0;
-        int skippedEmpty = 0;
-        int skippedUnmapped = 0;
-        int skippedMalformed = 0;
-        int parseErrors = 0;
-        int setBlockErrors = 0;
-        long start = System.currentTimeMillis();
+    private SpawnResult loadFile(World world, Path path, int threadCount) {
+        return BlockRegionFormat.isRegionFile(path)
+                ? loadRegionFile(world, path, threadCount)
+                : loadCsvFile(world, path, threadCount);
+    }
 
-        List<String> lines = new ArrayList<>();
-        int xIdx;
-        int yIdx;
-        int zIdx;
-        int blockIdx;
+    /**
+     * Spawns a converted CSV. When it has a {@link CsvChunkIndex}, each worker places whole chunks read
+     * straight from the file; otherwise the rows are read up front and split into batches.
+     */
+    private SpawnResult loadCsvFile(World world, Path csvPath, int threadCount) {
+        long start = System.currentTimeMillis();
 
-        try (BufferedReader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        CsvChunkIndex index = CsvChunkIndex.load(csvPath);
+        CsvRows rows;
+        try (CsvScanner reader = CsvScanner.open(csvPath)) {
+            if (!reader.nextRow()) {
                 return new SpawnResult(0, 0, 1, 0);
             }
-            String[] header = headerLine.split(",", -1);
-            xIdx = findColumnIndex(header, "x");
-            yIdx = findColumnIndex(header, "y");
-            zIdx = findColumnIndex(header, "z");
-            blockIdx = findColumnIndex(header, "hytale_block");
+            String[] header = reader.fields();
+            int xIdx = findColumnIndex(header, "x");
+            int yIdx = findColumnIndex(header, "y");
+            int zIdx = findColumnIndex(header, "z");
+            int blockIdx = findColumnIndex(header, "hytale_block");
             if (blockIdx == -1) {
                 blockIdx = findColumnIndex(header, "block");
             }
@@ -98,122 +109,235 @@ public class RegionSpawner {
                 return new SpawnResult(0, 0, 1, 0);
             }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.isBlank()) {
-                    lines.add(line);
-                }
+            if (index != null) {
+                return loadIndexedCsvFile(world, csvPath, index, xIdx, yIdx, zIdx, blockIdx, threadCount, start);
             }
+            rows = CsvRows.read(reader, xIdx, yIdx, zIdx, blockIdx);
         } catch (Exception e) {
             LOGGER.atWarning().log("[HytalesHub] Failed to read %s: %s", csvPath.getFileName(), e.getMessage());
             return new SpawnResult(0, 0, 1, 0);
         }
 
-        if (lines.isEmpty()) {
+        if (rows.size == 0) {
             return new SpawnResult(0, 0, 0, System.currentTimeMillis() - start);
         }
 
-        final int fxIdx = xIdx;
-        final int fyIdx = yIdx;
-        final int fzIdx = zIdx;
-        final int fBlockIdx = blockIdx;
         final int threads = Math.max(1, threadCount);
         ExecutorService executor = Executors.newFixedThreadPool(threads);
-        AtomicInteger placedCounter = new AtomicInteger();
-        AtomicInteger skippedEmptyCounter = new AtomicInteger();
-        AtomicInteger skippedUnmappedCounter = new AtomicInteger();
-        AtomicInteger skippedMalformedCounter = new AtomicInteger();
-        AtomicInteger parseErrorCounter = new AtomicInteger();
-        AtomicInteger setBlockErrorCounter = new AtomicInteger();
-        AtomicInteger processedCounter = new AtomicInteger();
-        AtomicInteger nextPercentLog = new AtomicInteger(10);
-        AtomicLong totalSetBlockTimeNs = new AtomicLong();
-        AtomicInteger setBlockCalls = new AtomicInteger();
-
-        ConcurrentHashMap<String, AtomicInteger> setBlockErrorCounts = new ConcurrentHashMap<>();
-
-        int batchSize = Math.max(1000, lines.size() / threads);
-        int totalBatches = (lines.size() + batchSize - 1) / batchSize;
-
-        for (int i = 0; i < lines.size(); i += batchSize) {
+        SpawnProgress progress = new SpawnProgress(world, csvPath, rows.size);
+
+        int batchSize = Math.max(1000, rows.size / threads);
+
+        for (int i = 0; i < rows.size; i += batchSize) {
             final int startIdx = i;
-            final int endIdx = Math.min(i + batchSize, lines.size());
+            final int endIdx = Math.min(i + batchSize, rows.size);
             executor.submit(() -> {
                 for (int j = startIdx; j < endIdx; j++) {
-                    String line = lines.get(j);
-                    String[] parts = line.split(",", -1);
-                    if (parts.length <= fBlockIdx) {
-                        skippedMalformedCounter.incrementAndGet();
+                    int block = rows.blocks[j];
+                    if (block == CsvRows.MALFORMED) {
+                        progress.skippedMalformed.incrementAndGet();
                         continue;
                     }
 
-                    String blockId = parts[fBlockIdx].trim();
-                    if (blockId.isEmpty()) {
-                        skippedEmptyCounter.incrementAndGet();
+                    String blockId = rows.blockIds[block & CsvRows.NAME_MASK];
+                    if (!progress.shouldPlace(blockId)) {
                         continue;
                     }
-                    if (UNMAPPED_VALUE.equalsIgnoreCase(blockId)) {
-                        skippedUnmappedCounter.incrementAndGet();
-                        continue;
+
+                    if ((block & CsvRows.BAD_NUMBER) != 0) {
+                        progress.parseErrors.incrementAndGet();
+                    } else {
+                        progress.place(rows.xs[j], rows.ys[j], rows.zs[j], blockId);
                     }
 
-                    try {
-                        int x = Integer.parseInt(parts[fxIdx].trim());
-                        int y = Integer.parseInt(parts[fyIdx].trim());
-                        int z = Integer.parseInt(parts[fzIdx].trim());
+                    progress.advance(1);
+                }
+            });
+        }
+
+        return progress.finish(executor, start);
+    }
+
+    /**
+     * Spawns a chunk-sorted CSV with one task per indexed chunk, so no two workers place the same chunk.
+     */
+    private SpawnResult loadIndexedCsvFile(World world,
+                                           Path csvPath,
+                                           CsvChunkIndex index,
+                                           int xIdx,
+                                           int yIdx,
+                                           int zIdx,
+                                           int blockIdx,
+                                           int threadCount,
+                                           long start) {
+        int chunkCount = index.size();
+        if (chunkCount == 0) {
+            return new SpawnResult(0, 0, 0, System.currentTimeMillis() - start);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, chunkCount)));
+        SpawnProgress progress = new SpawnProgress(world, csvPath, chunkCount);
+        ThreadLocal<CsvBlockIds> blockIds = ThreadLocal.withInitial(CsvBlockIds::new);
+        int minFields = Math.max(blockIdx, Math.max(xIdx, Math.max(yIdx, zIdx))) + 1;
+
+        for (int position = 0; position < chunkCount; position++) {
+            final int chunkPosition = position;
+            executor.submit(() -> {
+                try (CsvScanner reader = CsvScanner.open(csvPath, index.offset(chunkPosition),
+                        index.length(chunkPosition))) {
+                    CsvBlockIds names = blockIds.get();
+                    while (reader.nextRow()) {
+                        if (reader.isBlank()) {
+                            continue;
+                        }
+                        if (reader.fieldCount() <= blockIdx) {
+                            progress.skippedMalformed.incrementAndGet();
+                            continue;
+                        }
+                        String blockId = names.blockId(reader, blockIdx);
+                        if (!progress.shouldPlace(blockId)) {
+                            continue;
+                        }
+                        if (reader.fieldCount() < minFields) {
+                            progress.parseErrors.incrementAndGet();
+                            continue;
+                        }
                         try {
-                            long t0 = System.nanoTime();
-                            world.setBlock(x, y, z, blockId);
-                            long dt = System.nanoTime() - t0;
-                            totalSetBlockTimeNs.addAndGet(dt);
-                            setBlockCalls.incrementAndGet();
-                            placedCounter.incrementAndGet();
-                        } catch (Exception e) {
-                            setBlockErrorCounter.incrementAndGet();
-                            setBlockErrorCounts.computeIfAbsent(blockId, k -> new AtomicInteger()).incrementAndGet();
+                            progress.place(reader.parseInt(xIdx), reader.parseInt(yIdx), reader.parseInt(zIdx),
+                                    blockId);
+                        } catch (NumberFormatException e) {
+                            progress.parseErrors.incrementAndGet();
                         }
-                    } catch (NumberFormatException e) {
-                        parseErrorCounter.incrementAndGet();
-                    }
-
-                    int current = processedCounter.incrementAndGet();
-                    int percent = (int) ((current * 100L) / lines.size());
-                    int next = nextPercentLog.get();
-                    if (percent >= next && nextPercentLog.compareAndSet(next, next + 10)) {
-                        long avgNs = setBlockCalls.get() > 0 ? totalSetBlockTimeNs.get() / setBlockCalls.get() : 0;
-                        LOGGER.atInfo().log("[HytalesHub] %s progress: %d%% (%d/%d) placed=%d avgSetBlock=%.2fms",
-                                csvPath.getFileName(), next, current, lines.size(), placedCounter.get(), avgNs / 1_000_000.0);
                     }
+                } catch (Exception e) {
+                    progress.parseErrors.incrementAndGet();
+                    LOGGER.atWarning().log("[HytalesHub] Failed to read chunk (%d,%d) in %s: %s",
+                            index.chunkX(chunkPosition), index.chunkZ(chunkPosition), csvPath.getFileName(),
+                            e.getMessage());
                 }
+                progress.advance(1);
             });
         }
 
-        executor.shutdown();
-        try {
-            executor.awaitTermination(1, TimeUnit.HOURS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        return progress.finish(executor, start);
+    }
+
+    /**
+     * Spawns a binary region file with one task per chunk; the file is memory-mapped, so nothing is
+     * materialized up front and each worker decodes only the chunks it places.
+     */
+    private SpawnResult loadRegionFile(World world, Path regionPath, int threadCount) {
+        long start = System.currentTimeMillis();
+        try (BlockRegionReader reader = BlockRegionReader.open(regionPath, dictionary)) {
+            int chunkCount = reader.chunkCount();
+            if (chunkCount == 0) {
+                return new SpawnResult(0, 0, 0, System.currentTimeMillis() - start);
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, chunkCount)));
+            SpawnProgress progress = new SpawnProgress(world, regionPath, chunkCount);
+            String[] blockIds = blockIdTable();
+            IntFunction<String> targets = stateId -> blockIds[stateId];
+            ThreadLocal<BlockSection> sections = ThreadLocal.withInitial(BlockSection::new);
+            ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[BlockRegionFormat.SECTION_BLOCKS]);
+
+            for (int position = 0; position < chunkCount; position++) {
+                final int chunkPosition = position;
+                executor.submit(() -> {
+                    try {
+                        int[] indices = scratch.get();
+                        reader.readChunk(chunkPosition, sections.get(),
+                                section -> placeSection(section, targets, indices, progress));
+                    } catch (Exception e) {
+                        progress.parseErrors.incrementAndGet();
+                        LOGGER.atWarning().log("[HytalesHub] Failed to read chunk %d in %s: %s",
+                                chunkPosition, regionPath.getFileName(), e.getMessage());
+                    }
+                    progress.advance(1);
+                });
+            }
+
+            return progress.finish(executor, start);
+        } catch (Exception e) {
+            LOGGER.atWarning().log("[HytalesHub] Failed to read %s: %s", regionPath.getFileName(), e.getMessage());
+            return new SpawnResult(0, 0, 1, 0);
         }
+    }
 
-        placed = placedCounter.get();
-        skippedEmpty = skippedEmptyCounter.get();
-        skippedUnmapped = skippedUnmappedCounter.get();
-        skippedMalformed = skippedMalformedCounter.get();
-        parseErrors = parseErrorCounter.get();
-        setBlockErrors = setBlockErrorCounter.get();
+    /**
+     * Trimmed block ids of one worker's CSV rows, interned so each distinct id is decoded once per thread.
+     */
+    private static final class CsvBlockIds {
+        private final CsvNameTable names = new CsvNameTable();
+        private String[] blockIds = new String[64];
 
-        if (!setBlockErrorCounts.isEmpty()) {
-            setBlockErrorCounts.entrySet().stream()
-                    .sorted((a, b) -> b.getValue().get() - a.getValue().get())
-                    .limit(10)
-                    .forEach(entry -> LOGGER.atWarning().log("[HytalesHub] setBlock failures '%s': %d",
-                            entry.getKey(), entry.getValue().get()));
+        private String blockId(CsvScanner reader, int field) {
+            int nameId = reader.intern(field, names);
+            if (nameId >= blockIds.length) {
+                blockIds = Arrays.copyOf(blockIds, Math.max(nameId + 1, blockIds.length * 2));
+            }
+            String blockId = blockIds[nameId];
+            if (blockId == null) {
+                blockId = names.name(nameId).trim();
+                blockIds[nameId] = blockId;
+            }
+            return blockId;
         }
+    }
 
-        int skipped = skippedEmpty + skippedUnmapped + skippedMalformed;
-        int errors = parseErrors + setBlockErrors;
-        long elapsed = System.currentTimeMillis() - start;
-        return new SpawnResult(placed, skipped, errors, elapsed);
+    /**
+     * Block ids by state id, trimmed once per file instead of once per block.
+     */
+    private String[] blockIdTable() {
+        String[] blockIds = dictionary.names();
+        for (int stateId = 1; stateId < blockIds.length; stateId++) {
+            blockIds[stateId] = blockIds[stateId].trim();
+        }
+        return blockIds;
+    }
+
+    /**
+     * Places one section, looking each palette entry's block id up through {@code targets} once.
+     */
+    private void placeSection(BlockSection section,
+                              IntFunction<String> targets,
+                              int[] indices,
+                              SpawnProgress progress) {
+        int paletteSize = section.paletteSize();
+        boolean[] placeable = new boolean[paletteSize + 1];
+        String[] blockIds = new String[paletteSize + 1];
+        for (int entry = 1; entry <= paletteSize; entry++) {
+            blockIds[entry] = targets.apply(section.stateId(entry));
+        }
+        section.unpack(indices);
+        int baseX = section.baseX();
+        int baseY = section.baseY();
+        int baseZ = section.baseZ();
+        for (int index = section.lyMin() << 8, end = (section.lyMax() + 1) << 8; index < end; index++) {
+            int entry = indices[index];
+            if (entry == 0 || entry > paletteSize) {
+                continue;
+            }
+            String blockId = blockIds[entry];
+            if (!placeable[entry] && !progress.shouldPlace(blockId)) {
+                continue;
+            }
+            placeable[entry] = true;
+            progress.place(baseX + (index & 15), baseY + (index >> 8), baseZ + ((index >> 4) & 15), blockId);
+        }
+    }
+
+    /**
+     * Starts placing the chunks of {@code name} as they are handed over with {@link ChunkPlacer#place}, for
+     * imports that never write a region file. {@code targets} gives the Hytale block id for a state id.
+     */
+    public ChunkPlacer openPlacer(World world,
+                                  Path name,
+                                  int chunkCount,
+                                  int threadCount,
+                                  int yOffset,
+                                  IntFunction<String> targets) {
+        return new ChunkPlacer(world, name, chunkCount, threadCount, yOffset, targets);
     }
 
     private int findColumnIndex(String[] header, String name) {
@@ -225,6 +349,227 @@ public class RegionSpawner {
         return -1;
     }
 
+    /**
+     * Counters and progress logging shared by the worker threads spawning one file. {@code total} is in
+     * whatever unit the caller advances by: rows for CSVs, chunks for region files.
+     */
+    private static final class SpawnProgress {
+        private final World world;
+        private final Path file;
+        private final int total;
+        private final AtomicInteger placed = new AtomicInteger();
+        private final AtomicInteger skippedEmpty = new AtomicInteger();
+        private final AtomicInteger skippedUnmapped = new AtomicInteger();
+        private final AtomicInteger skippedMalformed = new AtomicInteger();
+        private final AtomicInteger parseErrors = new AtomicInteger();
+        private final AtomicInteger setBlockErrors = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger nextPercentLog = new AtomicInteger(10);
+        private final AtomicLong totalSetBlockTimeNs = new AtomicLong();
+        private final AtomicInteger setBlockCalls = new AtomicInteger();
+        private final ConcurrentHashMap<String, AtomicInteger> setBlockErrorCounts = new ConcurrentHashMap<>();
+
+        private SpawnProgress(World world, Path file, int total) {
+            this.world = world;
+            this.file = file;
+            this.total = total;
+        }
+
+        /**
+         * Returns whether {@code blockId} is a real target, counting it as skipped otherwise.
+         */
+        private boolean shouldPlace(String blockId) {
+            if (blockId.isEmpty()) {
+                skippedEmpty.incrementAndGet();
+                return false;
+            }
+            if (UNMAPPED_VALUE.equalsIgnoreCase(blockId)) {
+                skippedUnmapped.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        private void place(int x, int y, int z, String blockId) {
+            try {
+                long t0 = System.nanoTime();
+                world.setBlock(x, y, z, blockId);
+                long dt = System.nanoTime() - t0;
+                totalSetBlockTimeNs.addAndGet(dt);
+                setBlockCalls.incrementAndGet();
+                placed.incrementAndGet();
+            } catch (Exception e) {
+                setBlockErrors.incrementAndGet();
+                setBlockErrorCounts.computeIfAbsent(blockId, k -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+
+        private void advance(int units) {
+            int current = processed.addAndGet(units);
+            int percent = (int) ((current * 100L) / total);
+            int next = nextPercentLog.get();
+            if (percent >= next && nextPercentLog.compareAndSet(next, next + 10)) {
+                long avgNs = setBlockCalls.get() > 0 ? totalSetBlockTimeNs.get() / setBlockCalls.get() : 0;
+                LOGGER.atInfo().log("[HytalesHub] %s progress: %d%% (%d/%d) placed=%d avgSetBlock=%.2fms",
+                        file.getFileName(), next, current, total, placed.get(), avgNs / 1_000_000.0);
+            }
+        }
+
+        private SpawnResult finish(ExecutorService executor, long start) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!setBlockErrorCounts.isEmpty()) {
+                setBlockErrorCounts.entrySet().stream()
+                        .sorted((a, b) -> b.getValue().get() - a.getValue().get())
+                        .limit(10)
+                        .forEach(entry -> LOGGER.atWarning().log("[HytalesHub] setBlock failures '%s': %d",
+                                entry.getKey(), entry.getValue().get()));
+            }
+
+            int skipped = skippedEmpty.get() + skippedUnmapped.get() + skippedMalformed.get();
+            int errors = parseErrors.get() + setBlockErrors.get();
+            long elapsed = System.currentTimeMillis() - start;
+            return new SpawnResult(placed.get(), skipped, errors, elapsed);
+        }
+    }
+
+    /**
+     * The non-blank rows of a spawn CSV as parallel int columns. Block ids are interned per file, so a row
+     * costs 16 bytes instead of a String line that is split again on a worker.
+     */
+    private static final class CsvRows {
+        private static final int MALFORMED = -1;
+        private static final int BAD_NUMBER = 1 << 30;
+        private static final int NAME_MASK = BAD_NUMBER - 1;
+
+        private int size;
+        private int[] xs = new int[4096];
+        private int[] ys = new int[4096];
+        private int[] zs = new int[4096];
+        private int[] blocks = new int[4096];
+        private String[] blockIds;
+
+        private static CsvRows read(CsvScanner reader, int xIdx, int yIdx, int zIdx, int blockIdx)
+                throws IOException {
+            CsvRows rows = new CsvRows();
+            CsvNameTable names = new CsvNameTable();
+            int minFields = Math.max(blockIdx, Math.max(xIdx, Math.max(yIdx, zIdx))) + 1;
+            while (reader.nextRow()) {
+                if (reader.isBlank()) {
+                    continue;
+                }
+                if (reader.fieldCount() <= blockIdx) {
+                    rows.add(0, 0, 0, MALFORMED);
+                    continue;
+                }
+                int block = reader.intern(blockIdx, names);
+                if (reader.fieldCount() < minFields) {
+                    rows.add(0, 0, 0, block | BAD_NUMBER);
+                    continue;
+                }
+                try {
+                    rows.add(reader.parseInt(xIdx), reader.parseInt(yIdx), reader.parseInt(zIdx), block);
+                } catch (NumberFormatException e) {
+                    rows.add(0, 0, 0, block | BAD_NUMBER);
+                }
+            }
+            rows.blockIds = new String[names.size()];
+            for (int nameId = 0; nameId < names.size(); nameId++) {
+                rows.blockIds[nameId] = names.name(nameId).trim();
+            }
+            return rows;
+        }
+
+        private void add(int x, int y, int z, int block) {
+            if (size == blocks.length) {
+                int length = size * 2;
+                xs = Arrays.copyOf(xs, length);
+                ys = Arrays.copyOf(ys, length);
+                zs = Arrays.copyOf(zs, length);
+                blocks = Arrays.copyOf(blocks, length);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            blocks[size] = block;
+            size++;
+        }
+    }
+
+    /**
+     * Places encoded chunks ({@link BlockRegionFormat} chunk bytes) on a worker pool as they arrive. At most
+     * a few chunks per worker wait in the queue; {@link #place} blocks the producer beyond that.
+     */
+    public final class ChunkPlacer {
+        private static final int QUEUED_CHUNKS_PER_THREAD = 4;
+
+        private final Path name;
+        private final int yOffset;
+        private final IntFunction<String> targets;
+        private final ExecutorService executor;
+        private final SpawnProgress progress;
+        private final Semaphore queued;
+        private final ThreadLocal<BlockSection> sections = ThreadLocal.withInitial(BlockSection::new);
+        private final ThreadLocal<int[]> scratch =
+                ThreadLocal.withInitial(() -> new int[BlockRegionFormat.SECTION_BLOCKS]);
+        private final long start = System.currentTimeMillis();
+
+        private ChunkPlacer(World world,
+                            Path name,
+                            int chunkCount,
+                            int threadCount,
+                            int yOffset,
+                            IntFunction<String> targets) {
+            int threads = Math.max(1, Math.min(threadCount, Math.max(1, chunkCount)));
+            this.name = name;
+            this.yOffset = yOffset;
+            this.targets = targets;
+            this.executor = Executors.newFixedThreadPool(threads);
+            this.progress = new SpawnProgress(world, name, Math.max(1, chunkCount));
+            this.queued = new Semaphore(threads * QUEUED_CHUNKS_PER_THREAD);
+        }
+
+        public void place(byte[] chunk) throws InterruptedException {
+            queued.acquire();
+            try {
+                submit(chunk);
+            } catch (RuntimeException e) {
+                // e.g. rejected after finish(): the task that would release the permit never runs.
+                queued.release();
+                throw e;
+            }
+        }
+
+        private void submit(byte[] chunk) {
+            executor.submit(() -> {
+                try {
+                    int[] indices = scratch.get();
+                    BlockRegionReader.readChunk(ByteBuffer.wrap(chunk), yOffset, dictionary.size(), sections.get(),
+                            section -> placeSection(section, targets, indices, progress));
+                } catch (Exception e) {
+                    progress.parseErrors.incrementAndGet();
+                    LOGGER.atWarning().log("[HytalesHub] Failed to place chunk in %s: %s",
+                            name.getFileName(), e.getMessage());
+                } finally {
+                    queued.release();
+                }
+                progress.advance(1);
+            });
+        }
+
+        /**
+         * Waits for every chunk handed over so far to be placed.
+         */
+        public SpawnResult finish() {
+            return progress.finish(executor, start);
+        }
+    }
+
     public record SpawnResult(int placed, int skipped, int errors, long elapsedMs) {
     }
 